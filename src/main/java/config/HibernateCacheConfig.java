@@ -0,0 +1,55 @@
+package config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+@Configuration
+public class HibernateCacheConfig {
+
+    @Value("${banking.hibernate-cache.customer-size:10000}")
+    private long customerSize;
+
+    @Value("${banking.hibernate-cache.customer-addresses-size:10000}")
+    private long customerAddressesSize;
+
+    @Value("${banking.hibernate-cache.address-size:20000}")
+    private long addressSize;
+
+    @Value("${banking.hibernate-cache.expire-after-write:10m}")
+    private Duration expireAfterWrite;
+
+
+    // the second-level cache regions named by @Cache(region = ...) on the entities, created up front
+    // so their sizes come from application.properties
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName()).getCacheManager();
+        createRegion(cacheManager, "customer", customerSize);
+        createRegion(cacheManager, "customer-addresses", customerAddressesSize);
+        createRegion(cacheManager, "address", addressSize);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateSecondLevelCache(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    private void createRegion(CacheManager cacheManager, String region, long maximumSize) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maximumSize));
+        configuration.setExpireAfterWrite(OptionalLong.of(expireAfterWrite.toNanos()));
+        configuration.setStatisticsEnabled(true);
+        cacheManager.createCache(region, configuration);
+    }
+}
@@ -0,0 +1,29 @@
+package config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import domain.Account;
+import domain.Bill;
+import domain.Customer;
+import domain.Deposit;
+import domain.Withdrawal;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import successfulresponse.ResponseSerializers;
+
+@Configuration
+public class JacksonConfig {
+
+    // Spring Boot adds every Module bean to the application's ObjectMapper
+    @Bean
+    public Module responseSerializers() {
+        SimpleModule module = new SimpleModule("ResponseSerializers");
+        module.addSerializer(Account.class, new ResponseSerializers.AccountSerializer());
+        module.addSerializer(Deposit.class, new ResponseSerializers.DepositSerializer());
+        module.addSerializer(Bill.class, new ResponseSerializers.BillSerializer());
+        module.addSerializer(Withdrawal.class, new ResponseSerializers.WithdrawalSerializer());
+        module.addSerializer(Customer.class, new ResponseSerializers.CustomerSerializer());
+        module.addSerializer(new ResponseSerializers.SingleApiResponseSerializer());
+        return module;
+    }
+}
@@ -0,0 +1,17 @@
+package config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    // times the public methods of classes annotated with @Timed, tagged with class, method and the
+    // exception thrown ("none" on success); repository calls are timed by Spring Boot as spring.data.repository.invocations
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+}
@@ -3,8 +3,10 @@ package controller;
 import domain.Account;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 import service.AccountService;
 
 
@@ -15,8 +17,13 @@ public class AccountController {
     private AccountService accountService;
 
     @RequestMapping(value = "/accounts", method = RequestMethod.GET)
-    public ResponseEntity<?> getAllAccounts() {
-        return accountService.getAllAccounts();
+    public ResponseEntity<?> getAllAccounts(@RequestParam(required = false) Integer limit, @RequestParam(required = false) Long after) {
+        return accountService.getAllAccounts(limit, after);
+    }
+
+    @RequestMapping(value = "/accounts", params = "stream=true", method = RequestMethod.GET)
+    public ResponseEntity<ResponseBodyEmitter> streamAllAccounts() {
+        return accountService.streamAllAccounts();
     }
 
     @RequestMapping(value = "/accounts/{customerId}", method = RequestMethod.POST)
@@ -25,8 +32,8 @@ public class AccountController {
     }
 
     @RequestMapping(value = "/accounts/{accountId}", method = RequestMethod.GET)
-    public ResponseEntity<?> getAccountById(@PathVariable Long accountId) {
-        return accountService.getAccountById(accountId);
+    public ResponseEntity<?> getAccountById(@PathVariable Long accountId, @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return accountService.getAccountById(accountId, ifNoneMatch);
     }
 
     @RequestMapping(value = "/accounts/{accountId}", method = RequestMethod.PUT)
@@ -39,6 +46,11 @@ public class AccountController {
         return accountService.deleteAccount(accountId);
     }
 
+    @RequestMapping(value = "/accounts/{accountId}/stripes", method = RequestMethod.PUT)
+    public ResponseEntity<?> updateBalanceStripes(@PathVariable Long accountId, @RequestParam int count) {
+        return accountService.updateBalanceStripes(accountId, count);
+    }
+
     @RequestMapping(value = "/customers/{customerId}/accounts", method = RequestMethod.GET)
     public ResponseEntity<?> getAllAccountsForCustomer(@PathVariable Long customerId) {
         return accountService.getAllAccountsForCustomer(customerId);
@@ -3,6 +3,7 @@ package controller;
 import domain.Bill;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
@@ -27,9 +28,9 @@ public class BillController {
 
 
     @GetMapping("/bills/{billId}")
-    public ResponseEntity<?> getBillById(@PathVariable Long billId) {
+    public ResponseEntity<?> getBillById(@PathVariable Long billId, @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 
-        return billService.getABillById(billId);
+        return billService.getABillById(billId, ifNoneMatch);
     }
 
 
@@ -4,6 +4,7 @@ package controller;
 import domain.Customer;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import service.CustomerService;
@@ -21,8 +22,8 @@ public class CustomerController {
     }
 
     @GetMapping("/customers/{customerId}")
-    public ResponseEntity<?> getCustomerById(@PathVariable Long customerId) {
-        return service.getCustomerById(customerId);
+    public ResponseEntity<?> getCustomerById(@PathVariable Long customerId, @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return service.getCustomerById(customerId, ifNoneMatch);
     }
 
     @RequestMapping(value = "/customers", method = RequestMethod.POST)
@@ -3,14 +3,30 @@ package controller;
 
 
 import domain.Deposit;
+import domain.enums.DepositStatus;
+import domain.enums.Medium;
+import domain.enums.TransactionType;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import service.DepositBatchService;
+import service.DepositProcessingQueue;
 import service.DepositService;
+import service.DepositSettlementService;
+import service.IdempotencyStore;
 import util.DepositCreationRequest;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
 @RestController
 @Validated
 public class DepositController {
@@ -19,28 +35,68 @@ public class DepositController {
 @Autowired
 private DepositService depositService;
 
+@Autowired
+private DepositBatchService depositBatchService;
 
-    @GetMapping("/accounts/{accountId}/deposits")
-    public ResponseEntity<?> getDepositsByAccount(@PathVariable Long accountId){
+@Autowired
+private DepositSettlementService depositSettlementService;
+
+@Autowired
+private DepositProcessingQueue depositProcessingQueue;
+
+@Autowired
+private IdempotencyStore idempotencyStore;
 
-        return depositService.getAllDepositsByAccount(accountId);
+
+    @GetMapping("/accounts/{accountId}/deposits")
+    public ResponseEntity<?> getDepositsByAccount(@PathVariable Long accountId,
+                                                  @RequestParam(required = false) Integer limit,
+                                                  @RequestParam(required = false) Long after,
+                                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                  @RequestParam(required = false) DepositStatus status,
+                                                  @RequestParam(required = false) Medium medium,
+                                                  @RequestParam(required = false) TransactionType type,
+                                                  @RequestParam(required = false) BigDecimal minAmount,
+                                                  @RequestParam(required = false) BigDecimal maxAmount){
+
+        return depositService.getAllDepositsByAccount(accountId, limit, after, from, to, status, medium, type, minAmount, maxAmount);
 
     }
 
 
 
     @GetMapping("/deposits/{depositId}")
-    public ResponseEntity<?> getDepositById(@PathVariable Long depositId){
+    public ResponseEntity<?> getDepositById(@PathVariable Long depositId, @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){
 
-        return depositService.getADepositById(depositId);
+        return depositService.getADepositById(depositId, ifNoneMatch);
 
     }
 
 
     @PostMapping("/accounts/{accountId}/deposits")
-    public ResponseEntity<?> createADeposit(@PathVariable Long accountId, @Valid @RequestBody DepositCreationRequest depositCreationRequest){
+    public ResponseEntity<?> createADeposit(@PathVariable Long accountId, @Valid @RequestBody DepositCreationRequest depositCreationRequest,
+                                            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey){
 
-        return depositService.startCreateDepositProcess(accountId, depositCreationRequest);
+        return idempotencyStore.execute(idempotencyKey, "POST /accounts/" + accountId + "/deposits", depositCreationRequest,
+                () -> depositService.startCreateDepositProcess(accountId, depositCreationRequest));
+
+    }
+
+
+
+    @PostMapping(value = "/accounts/{accountId}/deposits/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> createDepositBatch(@PathVariable Long accountId, @RequestBody List<DepositCreationRequest> depositCreationRequests){
+
+        return depositBatchService.createDeposits(accountId, depositCreationRequests);
+
+    }
+
+
+    @PostMapping(value = "/accounts/{accountId}/deposits/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<?> createDepositBatchFromStream(@PathVariable Long accountId, HttpServletRequest request) throws IOException {
+
+        return depositBatchService.createDeposits(accountId, request.getInputStream());
 
     }
 
@@ -62,11 +118,28 @@ private DepositService depositService;
 
     }
 
+    @PutMapping("/deposits/process")
+    public ResponseEntity<?> processPendingDeposits(){
+
+        return depositSettlementService.settlePendingDepositsOnDemand();
+
+    }
+
     @PutMapping("/deposits/process/{depositId}")
-    public ResponseEntity<?> processDeposit(@PathVariable Long depositId){
+    public ResponseEntity<?> processDeposit(@PathVariable Long depositId, @RequestParam(defaultValue = "false") boolean async){
 
+        if (async){
+            return depositProcessingQueue.enqueue(depositId);
+        }
         return depositService.processDepositById(depositId);
 
     }
 
+    @GetMapping("/deposits/process/{depositId}/status")
+    public ResponseEntity<?> getDepositProcessingStatus(@PathVariable Long depositId){
+
+        return depositProcessingQueue.getStatus(depositId);
+
+    }
+
 }
@@ -2,13 +2,16 @@ package controller;
 
 
 import domain.Withdrawal;
+import service.IdempotencyStore;
 import service.WithdrawalService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import successfulresponse.ApiResponse;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -18,15 +21,17 @@ public class WithdrawalController {
     @Autowired
     private WithdrawalService withdrawalService;
 
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
     @GetMapping(value = "/accounts/{accountId}/withdrawals")
-    public ResponseEntity<?> getAllWithdrawalsByAccountId(@PathVariable Long accountId) {
-        List<Withdrawal> listOfWithdrawals = new ArrayList<>();
-        withdrawalService.getAllWithdrawalsByAccountId(accountId).forEach(listOfWithdrawals::add);
-        ApiResponse<Withdrawal> successfulResponse = new ApiResponse<>();
-        successfulResponse.setCode(HttpStatus.OK.value());
-        successfulResponse.setMessage("All withdrawals retrieved successfully");
-        successfulResponse.setData(listOfWithdrawals);
-        return new ResponseEntity<>(successfulResponse, HttpStatus.OK);
+    public ResponseEntity<?> getAllWithdrawalsByAccountId(@PathVariable Long accountId,
+                                                          @RequestParam(required = false) Integer limit,
+                                                          @RequestParam(required = false) Long after,
+                                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                          @RequestParam(required = false) String status) {
+        return withdrawalService.getAllWithdrawalsByAccountId(accountId, limit, after, from, to, status);
     }
 
 
@@ -37,15 +42,18 @@ public class WithdrawalController {
 
 
     @PostMapping(value = "/accounts/{accountId}/withdrawals")
-    public ResponseEntity<?> createWithdrawal(@RequestBody Withdrawal withdrawal, @PathVariable Long accountId) {
-        withdrawalService.createWithdrawal(withdrawal,accountId);
-        ApiResponse<Withdrawal> successfulResponse = new ApiResponse<>();
-        List<Withdrawal> listOfWithdrawals = new ArrayList<>();
-        listOfWithdrawals.add(withdrawal);
-        successfulResponse.setCode(HttpStatus.CREATED.value());
-        successfulResponse.setMessage("Withdrawal successful");
-        successfulResponse.setData(listOfWithdrawals);
-        return new ResponseEntity<>(successfulResponse, HttpStatus.CREATED);
+    public ResponseEntity<?> createWithdrawal(@RequestBody Withdrawal withdrawal, @PathVariable Long accountId,
+                                              @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        return idempotencyStore.execute(idempotencyKey, "POST /accounts/" + accountId + "/withdrawals", withdrawal, () -> {
+            withdrawalService.createWithdrawal(withdrawal,accountId);
+            ApiResponse<Withdrawal> successfulResponse = new ApiResponse<>();
+            List<Withdrawal> listOfWithdrawals = new ArrayList<>();
+            listOfWithdrawals.add(withdrawal);
+            successfulResponse.setCode(HttpStatus.CREATED.value());
+            successfulResponse.setMessage("Withdrawal successful");
+            successfulResponse.setData(listOfWithdrawals);
+            return new ResponseEntity<>(successfulResponse, HttpStatus.CREATED);
+        });
     }
 
 
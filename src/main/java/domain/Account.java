@@ -13,7 +13,8 @@ import jakarta.validation.constraints.Size;
 public class Account {
 
  @Id
- @GeneratedValue(strategy = GenerationType.IDENTITY)
+ @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "account_seq")
+ @SequenceGenerator(name = "account_seq", sequenceName = "account_seq", allocationSize = 1000)
  @Column(name = "ACCOUNT_ID")
  private Long id;
 
@@ -33,12 +34,16 @@ public class Account {
 
  @Min(0)
  @Column(name = "ACCOUNT_BALANCE")
- private Double balance;
+ private Money balance;
 
  @NotNull
  @Column(name = "CUSTOMER_ID")
  private Long customerId;
 
+ @Version
+ @Column(name = "ACCOUNT_VERSION")
+ private Long version;
+
 
  public Long getId() {
   return id;
@@ -72,11 +77,11 @@ public class Account {
   this.rewards = rewards;
  }
 
- public Double getBalance() {
+ public Money getBalance() {
   return balance;
  }
 
- public void setBalance(Double balance) {
+ public void setBalance(Money balance) {
   this.balance = balance;
  }
 
@@ -87,4 +92,11 @@ public class Account {
  public void setCustomerId(@NotNull Long customerId) {
   this.customerId = customerId;
  }
+ public Long getVersion() {
+  return version;
+ }
+
+ public void setVersion(Long version) {
+  this.version = version;
+ }
 }
@@ -2,13 +2,17 @@ package domain;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotEmpty;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name = "ADDRESS")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "address")
 public class Address {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "address_seq")
+    @SequenceGenerator(name = "address_seq", sequenceName = "address_seq", allocationSize = 1000)
     @Column(name = "ADDRESS_ID")
     private Long id;
 
@@ -1,24 +1,29 @@
 package domain;
 
+import domain.enums.BillStatus;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 
+import java.time.LocalDate;
+
 @Entity
 public class Bill {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bill_seq")
+    @SequenceGenerator(name = "bill_seq", sequenceName = "bill_seq", allocationSize = 1000)
     private Long id;
 
-    @NotEmpty
-    private String status;
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    private BillStatus status;
     @NotEmpty
     private String payee;
     @NotEmpty
     private String nickname;
 
-    @NotEmpty
-    private String creationDate;
+    @NotNull
+    private LocalDate creationDate;
 
     @NotEmpty
     private String paymentDate;
@@ -27,11 +32,12 @@ public class Bill {
     @Max(31)
     private Integer recurringDate;
 
-    private String upcomingPaymentDate;
+    // null when the bill has no upcoming payment
+    private LocalDate upcomingPaymentDate;
 
     @NotNull
     @Positive
-    private Double paymentAmount;
+    private Money paymentAmount;
 
   //    @NotNull
 //    @ManyToOne(fetch = FetchType.EAGER)
@@ -47,6 +53,9 @@ public class Bill {
     @NotNull
     private Long accountId;
 
+    @Version
+    private Long version;
+
     public Long getId() {
         return id;
     }
@@ -55,11 +64,11 @@ public class Bill {
         this.id = id;
     }
 
-    public String getStatus() {
+    public BillStatus getStatus() {
         return status;
     }
 
-    public void setStatus(String status) {
+    public void setStatus(BillStatus status) {
         this.status = status;
     }
 
@@ -79,11 +88,11 @@ public class Bill {
         this.nickname = nickname;
     }
 
-    public String getCreationDate() {
+    public LocalDate getCreationDate() {
         return creationDate;
     }
 
-    public void setCreationDate(String creationDate) {
+    public void setCreationDate(LocalDate creationDate) {
         this.creationDate = creationDate;
     }
 
@@ -103,19 +112,19 @@ public class Bill {
         this.recurringDate = recurringDate;
     }
 
-    public String getUpcomingPaymentDate() {
+    public LocalDate getUpcomingPaymentDate() {
         return upcomingPaymentDate;
     }
 
-    public void setUpcomingPaymentDate(String upcomingPaymentDate) {
+    public void setUpcomingPaymentDate(LocalDate upcomingPaymentDate) {
         this.upcomingPaymentDate = upcomingPaymentDate;
     }
 
-    public Double getPaymentAmount() {
+    public Money getPaymentAmount() {
         return paymentAmount;
     }
 
-    public void setPaymentAmount(Double paymentAmount) {
+    public void setPaymentAmount(Money paymentAmount) {
         this.paymentAmount = paymentAmount;
     }
 
@@ -126,4 +135,12 @@ public class Bill {
     public void setAccountId(Long accountId) {
         this.accountId = accountId;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
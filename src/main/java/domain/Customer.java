@@ -2,15 +2,20 @@ package domain;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotEmpty;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.Set;
 
 @Entity
 @Table(name = "CUSTOMER")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "customer")
 public class Customer {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customer_seq")
+    @SequenceGenerator(name = "customer_seq", sequenceName = "customer_seq", allocationSize = 1000)
     @Column(name = "CUSTOMER_ID")
     private Long id;
 
@@ -22,11 +27,19 @@ public class Customer {
     @Column(name = "LAST_NAME")
     private String lastName;
 
+    // uncached owners load their addresses 100 customers per IN query instead of one query each
     @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "customer-addresses")
+    @BatchSize(size = 100)
     @NotEmpty
     @JoinColumn(name = "CUSTOMER_ID")
     private Set<Address> address;
 
+    // bumped on every update, also when only an address changed, so it can serve as the customer's ETag
+    @Version
+    @Column(name = "CUSTOMER_VERSION")
+    private Long version;
+
     public Customer() {
     }
 
@@ -69,4 +82,11 @@ public class Customer {
         this.address = address;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
@@ -1,43 +1,51 @@
 package domain;
 
+import domain.enums.DepositStatus;
+import domain.enums.Medium;
+import domain.enums.TransactionType;
 import jakarta.persistence.*;
-import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 
+import java.time.LocalDate;
+
 
 @Entity
 public class Deposit {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "deposit_seq")
+    @SequenceGenerator(name = "deposit_seq", sequenceName = "deposit_seq", allocationSize = 1000)
     @NotNull
     @Column(name="deposit_id")
     private Long depositId;
 
     @Column(name="deposit_type")
-    @NotEmpty
-    private String type;
+    @Enumerated(EnumType.STRING)
+    @NotNull
+    private TransactionType type;
 
     @Column(name="transaction_date")
-    @NotEmpty
-    private String transactionDate;
+    @NotNull
+    private LocalDate transactionDate;
 
     @Column(name="deposit_status")
-    @NotEmpty
-    private String status;
+    @Enumerated(EnumType.STRING)
+    @NotNull
+    private DepositStatus status;
 
     @Column(name="deposit_payee_id")
     private Long payee_id;
 
     @Column(name="deposit_medium")
-    @NotEmpty
-    private String medium;
+    @Enumerated(EnumType.STRING)
+    @NotNull
+    private Medium medium;
 
     @Column(name="deposit_amount")
     @NotNull
     @Positive
-    private Double amount;
+    private Money amount;
 
     @Column(name="deposit_description")
     private String description;
@@ -46,6 +54,10 @@ public class Deposit {
     @Column(name="account_id")
     private Long accountId;
 
+    @Version
+    @Column(name="deposit_version")
+    private Long version;
+
 
     // Getters and Setters
 
@@ -58,29 +70,29 @@ public class Deposit {
     }
 
 
-    public String getType() {
+    public TransactionType getType() {
         return type;
     }
 
-    public void setType(String type) {
+    public void setType(TransactionType type) {
         this.type = type;
     }
 
 
-    public String getTransactionDate() {
+    public LocalDate getTransactionDate() {
         return transactionDate;
     }
 
-    public void setTransactionDate(String transactionDate) {
+    public void setTransactionDate(LocalDate transactionDate) {
         this.transactionDate = transactionDate;
     }
 
 
-    public String getStatus() {
+    public DepositStatus getStatus() {
         return status;
     }
 
-    public void setStatus(String status) {
+    public void setStatus(DepositStatus status) {
         this.status = status;
     }
 
@@ -95,20 +107,20 @@ public class Deposit {
     }
 
 
-    public String getMedium() {
+    public Medium getMedium() {
         return medium;
     }
 
-    public void setMedium(String medium) {
+    public void setMedium(Medium medium) {
         this.medium = medium;
     }
 
 
-    public Double getAmount() {
+    public Money getAmount() {
         return amount;
     }
 
-    public void setAmount(Double amount) {
+    public void setAmount(Money amount) {
         this.amount = amount;
     }
 
@@ -128,6 +140,12 @@ public class Deposit {
     public void setAccountId(Long accountId) {
         this.accountId = accountId;
     }
-}
 
+    public Long getVersion() {
+        return version;
+    }
 
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
@@ -0,0 +1,75 @@
+package domain;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+// The stored outcome of a POST sent with an Idempotency-Key, replayed when the same key is sent again
+@Entity
+@Table(name = "IDEMPOTENCY_RECORD")
+public class IdempotencyRecord {
+
+    // endpoint scope and client key, e.g. "POST /accounts/1/deposits abc-123"
+    @Id
+    @Column(name = "IDEMPOTENCY_KEY", length = 512)
+    private String key;
+
+    // SHA-256 of the request, a different request under the same key is rejected
+    @Column(name = "REQUEST_HASH", length = 64, nullable = false)
+    private String requestHash;
+
+    // 0 while the first request is still running
+    @Column(name = "STATUS_CODE", nullable = false)
+    private int statusCode;
+
+    @Lob
+    @Column(name = "RESPONSE_BODY", length = 65535)
+    private String responseBody;
+
+    @Column(name = "CREATED_AT", nullable = false)
+    private Instant createdAt;
+
+
+    public IdempotencyRecord() {
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public void setRequestHash(String requestHash) {
+        this.requestHash = requestHash;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public void setStatusCode(int statusCode) {
+        this.statusCode = statusCode;
+    }
+
+    public String getResponseBody() {
+        return responseBody;
+    }
+
+    public void setResponseBody(String responseBody) {
+        this.responseBody = responseBody;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -1,33 +1,43 @@
 package domain;
 
 
+import domain.enums.Medium;
 import domain.enums.TransactionType;
+import domain.enums.WithdrawalStatus;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
-import jakarta.validation.constraints.NotEmpty;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 
+import java.time.LocalDate;
+
 @Entity
 public class Withdrawal {
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "withdrawal_seq")
+    @SequenceGenerator(name = "withdrawal_seq", sequenceName = "withdrawal_seq", allocationSize = 1000)
     @NotNull
     private Long id;
     @NotNull
     private TransactionType type;
-    @NotEmpty
-    private String transaction_Date = "2017-07-25";
-    @NotEmpty
-    private String status;
+    @NotNull
+    private LocalDate transaction_Date = LocalDate.of(2017, 7, 25);
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    private WithdrawalStatus status;
     @NotNull
     private Long payer_id;
-    @NotEmpty
-    private String medium;
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    private Medium medium;
     @NotNull
     @Positive
-    private Double amount;
+    private Money amount;
     private String description;
 
     public Long getId() {
@@ -46,19 +56,19 @@ public class Withdrawal {
         this.type = type;
     }
 
-    public String getTransaction_Date() {
+    public LocalDate getTransaction_Date() {
         return transaction_Date;
     }
 
-    public void setTransaction_Date(String transaction_Date) {
+    public void setTransaction_Date(LocalDate transaction_Date) {
         this.transaction_Date = transaction_Date;
     }
 
-    public String getStatus() {
+    public WithdrawalStatus getStatus() {
         return status;
     }
 
-    public void setStatus(String status) {
+    public void setStatus(WithdrawalStatus status) {
         this.status = status;
     }
 
@@ -70,19 +80,19 @@ public class Withdrawal {
         this.payer_id = payer_id;
     }
 
-    public String getMedium() {
+    public Medium getMedium() {
         return medium;
     }
 
-    public void setMedium(String medium) {
+    public void setMedium(Medium medium) {
         this.medium = medium;
     }
 
-    public Double getAmount() {
+    public Money getAmount() {
         return amount;
     }
 
-    public void setAmount(Double amount) {
+    public void setAmount(Money amount) {
         this.amount = amount;
     }
 
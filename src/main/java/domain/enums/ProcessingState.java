@@ -0,0 +1,5 @@
+package domain.enums;
+
+public enum ProcessingState {
+    QUEUED, PROCESSING, COMPLETED, FAILED
+}
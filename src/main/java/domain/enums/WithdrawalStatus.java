@@ -0,0 +1,6 @@
+package domain.enums;
+
+public enum WithdrawalStatus {
+
+    PENDING, EXECUTED
+}
@@ -5,6 +5,14 @@ public class ErrorResponse {
     private int code;
     private String message;
 
+    public ErrorResponse() {
+    }
+
+    public ErrorResponse(int code, String message) {
+        this.code = code;
+        this.message = message;
+    }
+
     public int getCode() {
         return code;
     }
@@ -1,10 +1,15 @@
 package exceptionhandler;
 
 import exceptions.*;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.MessageSource;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
@@ -17,156 +22,202 @@ import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExcep
 import org.springframework.web.servlet.resource.NoResourceFoundException;
 
 import java.lang.IllegalArgumentException;
-
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Every handled exception goes through a template cached per exception type: it holds the type's
+// banking.http.errors counter and samples the log, so a client probing random ids gets one log line per
+// interval and type instead of one per request. It also keeps the last response it built and answers
+// with it again while the message stays the same, so fixed-message errors allocate no response at all.
 @ControllerAdvice
 public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
 
 
     private static final Logger log = LoggerFactory.getLogger(GlobalExceptionHandler.class);
 
+    private static final String OPTIMISTIC_LOCK_MESSAGE = "The resource was modified by another request. Reload it and try again.";
+
     @Autowired
     private MessageSource messageSource;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // fill in stack traces of the exceptions package and log them, for debugging only
+    @Value("${banking.errors.stack-traces:false}")
+    private boolean stackTraces;
 
+    // at most one log line per exception type and status in this interval, 0 logs every exception
+    @Value("${banking.errors.log-interval:10s}")
+    private Duration logInterval;
 
-    @ExceptionHandler(TransactionMismatchException.class)
-    public ResponseEntity<ErrorResponse> handleTransactionMismatchException(TransactionMismatchException ex) {
-        log.error("TransactionMismatchException: {}", ex.getMessage());
-        ErrorResponse errorResponse = new ErrorResponse();
-        errorResponse.setCode(HttpStatus.BAD_REQUEST.value());
-        errorResponse.setMessage(ex.getMessage());
+    // each exception type is answered by one handler, so it always has the same status
+    private final Map<Class<?>, ErrorTemplate> templates = new ConcurrentHashMap<>();
 
-        log.error(TransactionMismatchException.class.getName() + ": " + ex.getMessage() + ".");
 
-        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    @PostConstruct
+    public void applyStackTraceMode() {
+        BankingException.setStackTraces(stackTraces);
+    }
+
+    @ExceptionHandler(TransactionMismatchException.class)
+    public ResponseEntity<ErrorResponse> handleTransactionMismatchException(TransactionMismatchException ex) {
+        return respond(ex, HttpStatus.BAD_REQUEST);
     }
 
     @ExceptionHandler(MediumMismatchException.class)
     public ResponseEntity<ErrorResponse> handleMediumMismatchException(MediumMismatchException ex) {
-        log.error("MediumMismatchException: {}", ex.getMessage());
-        ErrorResponse errorResponse = new ErrorResponse();
-
-        log.error(MediumMismatchException.class.getName() + ": " + ex.getMessage() + ".");
-
-        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+        return respond(ex, HttpStatus.BAD_REQUEST);
     }
 
 
     @ExceptionHandler(InsufficientFundsException.class)
     public ResponseEntity<ErrorResponse> handleInsufficientFundsException(InsufficientFundsException ex) {
-        log.error("InsufficientFundsException: {}", ex.getMessage());
-        ErrorResponse errorResponse = new ErrorResponse();
-        errorResponse.setCode(HttpStatus.PAYMENT_REQUIRED.value());
-        errorResponse.setMessage(ex.getMessage());
-
-        log.error(InsufficientFundsException.class.getName() + ": " + ex.getMessage() + ".");
-
-        return new ResponseEntity<>(errorResponse, HttpStatus.PAYMENT_REQUIRED);
+        return respond(ex, HttpStatus.PAYMENT_REQUIRED);
     }
 
 
     @ExceptionHandler(ResourceNotFoundException.class)
     public ResponseEntity<ErrorResponse> handleResourceNotFoundException(ResourceNotFoundException ex) {
-        log.error("ResourceNotFoundException: {}", ex.getMessage());
-        ErrorResponse errorResponse = new ErrorResponse();
-        errorResponse.setCode(HttpStatus.NOT_FOUND.value());
-        errorResponse.setMessage(ex.getMessage());
-
-        log.error(ResourceNotFoundException.class.getName() + ": " + ex.getMessage() + ".");
-
-        return new ResponseEntity<>(errorResponse, HttpStatus.NOT_FOUND);
+        return respond(ex, HttpStatus.NOT_FOUND);
     }
 
     @ExceptionHandler(InvalidInputException.class)
     public ResponseEntity<ErrorResponse> handleInvalidInputException(InvalidInputException ex) {
-        log.error("InvalidInputException: {}", ex.getMessage());
-        ErrorResponse errorResponse = new ErrorResponse();
-        errorResponse.setCode(HttpStatus.BAD_REQUEST.value());
-        errorResponse.setMessage(ex.getMessage());
-
-        log.error(InvalidInputException.class.getName() + ": " + ex.getMessage() + ".");
-
-        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+        return respond(ex, HttpStatus.BAD_REQUEST);
     }
 
     @ExceptionHandler(ForbiddenAccessException.class)
     public ResponseEntity<ErrorResponse> handleForbiddenAccessException(ForbiddenAccessException ex) {
-        log.error("ForbiddenAccessException: {}", ex.getMessage());
-        ErrorResponse errorResponse = new ErrorResponse();
-        errorResponse.setCode(HttpStatus.FORBIDDEN.value());
-        errorResponse.setMessage(ex.getMessage());
-
-        log.error(ForbiddenAccessException.class.getName() + ": " + ex.getMessage() + ".");
-
-        return new ResponseEntity<>(errorResponse, HttpStatus.FORBIDDEN);
+        return respond(ex, HttpStatus.FORBIDDEN);
     }
 
     @ExceptionHandler(InternalServerErrorException.class)
     public ResponseEntity<ErrorResponse> handleInternalServerErrorException(InternalServerErrorException ex) {
-        log.error("InternalServerErrorException: {}", ex.getMessage());
-        ErrorResponse errorResponse = new ErrorResponse();
-        errorResponse.setCode(HttpStatus.INTERNAL_SERVER_ERROR.value());
-        errorResponse.setMessage(ex.getMessage());
-
-        log.error(InternalServerErrorException.class.getName() + ": " + ex.getMessage() + ".");
-
-        return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+        return respond(ex, HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
     //user tries to access a resource without proper authentication
     @ExceptionHandler(UnauthorizedAccessException.class)
     public ResponseEntity<ErrorResponse> handleUnauthorizedAccessException(UnauthorizedAccessException ex) {
-        log.error("UnauthorizedAccessException: {}", ex.getMessage());
-        ErrorResponse errorResponse = new ErrorResponse();
-        errorResponse.setCode(HttpStatus.UNAUTHORIZED.value());
-        errorResponse.setMessage(ex.getMessage());
-
-        log.error(UnauthorizedAccessException.class.getName() + ": " + ex.getMessage() + ".");
-
-        return new ResponseEntity<>(errorResponse, HttpStatus.UNAUTHORIZED);
+        return respond(ex, HttpStatus.UNAUTHORIZED);
     }
 
     // occurs when there is a conflict with the current state of the resource(e.g. duplicate account creation)
     @ExceptionHandler(ConflictException.class)
     public ResponseEntity<ErrorResponse> handleConflictException(ConflictException ex) {
-        log.error("ConflictException: {}", ex.getMessage());
-        ErrorResponse errorResponse = new ErrorResponse();
-        errorResponse.setCode(HttpStatus.CONFLICT.value());
-        errorResponse.setMessage(ex.getMessage());
+        return respond(ex, HttpStatus.CONFLICT);
+    }
+
+
+    // a bounded work queue is full, the client should retry later
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<ErrorResponse> handleServiceUnavailableException(ServiceUnavailableException ex) {
+        return respond(ex, HttpStatus.SERVICE_UNAVAILABLE);
+    }
 
-        log.error(ConflictException.class.getName() + ": " + ex.getMessage() + ".");
 
-        return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+    // an @Version check failed because the entity was changed by another request
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorResponse> handleOptimisticLockingFailureException(OptimisticLockingFailureException ex) {
+        ErrorTemplate template = template(ex, HttpStatus.CONFLICT);
+        template.record(ex);
+        return template.response(OPTIMISTIC_LOCK_MESSAGE);
     }
 
 
     @Override
     protected ResponseEntity<Object> handleNoResourceFoundException(NoResourceFoundException ex, HttpHeaders headers, HttpStatusCode status, WebRequest request) {
-        log.error("NoResourceFoundException: {}", ex.getMessage());
-        ErrorResponse errorResponse = new ErrorResponse();
-        errorResponse.setCode(status.value());
-        errorResponse.setMessage(ex.getMessage());
-        return handleExceptionInternal(ex, errorResponse, headers, status, request);
+        ErrorTemplate template = template(ex, status);
+        template.record(ex);
+        return handleExceptionInternal(ex, template.response(ex.getMessage()).getBody(), headers, status, request);
     }
 
     @Override
     protected ResponseEntity<Object> handleHttpMessageNotReadable(HttpMessageNotReadableException ex, HttpHeaders headers, HttpStatusCode status, WebRequest request) {
-        log.error("HttpMessageNotReadableException: {}", ex.getMessage());
-        ErrorResponse errorResponse = new ErrorResponse();
-        errorResponse.setCode(status.value());
-        errorResponse.setMessage(ex.getMessage());
-        return handleExceptionInternal(ex, errorResponse, headers, status, request);
+        ErrorTemplate template = template(ex, status);
+        template.record(ex);
+        return handleExceptionInternal(ex, template.response(ex.getMessage()).getBody(), headers, status, request);
     }
 
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<ErrorResponse> handleIllegalArgumentException(IllegalArgumentException ex) {
-        log.error("IllegalArgumentException: {}", ex.getMessage());
-        ErrorResponse errorResponse = new ErrorResponse();
-        errorResponse.setCode(HttpStatus.BAD_REQUEST.value());
-        errorResponse.setMessage(ex.getMessage());
-        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+        return respond(ex, HttpStatus.BAD_REQUEST);
+    }
+
+
+    private ResponseEntity<ErrorResponse> respond(Exception ex, HttpStatus status) {
+        ErrorTemplate template = template(ex, status);
+        template.record(ex);
+        return template.response(ex.getMessage());
+    }
+
+    private ErrorTemplate template(Exception ex, HttpStatusCode status) {
+        return templates.computeIfAbsent(ex.getClass(), type -> new ErrorTemplate(type.getSimpleName(), status,
+                Counter.builder("banking.http.errors").description("Error responses by exception type")
+                        .tag("exception", type.getSimpleName()).tag("status", String.valueOf(status.value())).register(meterRegistry)));
     }
 
 
+    private final class ErrorTemplate {
+
+        private final String type;
+
+        private final HttpStatusCode status;
 
+        private final boolean serverError;
+
+        private final Counter counter;
+
+        // System.nanoTime() from which the next exception may be logged
+        private final AtomicLong nextLogAt = new AtomicLong(System.nanoTime());
+
+        private final AtomicLong suppressed = new AtomicLong();
+
+        // never modified once built, so every request with the same message can share it
+        private volatile ResponseEntity<ErrorResponse> lastResponse;
+
+        private ErrorTemplate(String type, HttpStatusCode status, Counter counter) {
+            this.type = type;
+            this.status = status;
+            this.serverError = status.is5xxServerError();
+            this.counter = counter;
+        }
+
+        private ResponseEntity<ErrorResponse> response(String message) {
+            ResponseEntity<ErrorResponse> response = lastResponse;
+            if (response == null || !Objects.equals(response.getBody().getMessage(), message)) {
+                response = new ResponseEntity<>(new ErrorResponse(status.value(), message), status);
+                lastResponse = response;
+            }
+            return response;
+        }
+
+        private void record(Exception ex) {
+            counter.increment();
+
+            long now = System.nanoTime();
+            long logAt = nextLogAt.get();
+            if (now - logAt < 0 || !nextLogAt.compareAndSet(logAt, now + logInterval.toNanos())) {
+                suppressed.incrementAndGet();
+                return;
+            }
+
+            long skipped = suppressed.getAndSet(0);
+            String message = skipped == 0
+                    ? type + ": " + ex.getMessage()
+                    : type + ": " + ex.getMessage() + " (" + skipped + " more since the last one logged)";
+
+            // client errors are expected traffic, only server errors are logged as errors and with their cause;
+            // exceptions of the exceptions package carry no stack trace unless banking.errors.stack-traces is on
+            if (serverError) {
+                log.error(message, ex);
+            } else {
+                log.warn(message, stackTraces ? ex : null);
+            }
+        }
+    }
 }
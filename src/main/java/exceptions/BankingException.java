@@ -0,0 +1,25 @@
+package exceptions;
+
+// Base of the API's exceptions. Most are thrown for ordinary client errors such as an unknown id, so by
+// default they skip filling in a stack trace; a wrapped cause still keeps its own.
+// banking.errors.stack-traces=true turns the traces back on for debugging.
+public abstract class BankingException extends RuntimeException {
+
+    private static volatile boolean stackTraces = false;
+
+    protected BankingException(String message) {
+        super(message, null, true, stackTraces);
+    }
+
+    protected BankingException(String message, Throwable cause) {
+        super(message, cause, true, stackTraces);
+    }
+
+    public static boolean isStackTraces() {
+        return stackTraces;
+    }
+
+    public static void setStackTraces(boolean enabled) {
+        stackTraces = enabled;
+    }
+}
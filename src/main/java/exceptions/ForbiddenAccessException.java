@@ -4,7 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.FORBIDDEN)
-public class ForbiddenAccessException extends RuntimeException {
+public class ForbiddenAccessException extends BankingException {
 
     public ForbiddenAccessException(String message) {
         super(message);
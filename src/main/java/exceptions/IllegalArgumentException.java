@@ -4,7 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.BAD_REQUEST)
-public class IllegalArgumentException extends RuntimeException {
+public class IllegalArgumentException extends BankingException {
 
     public IllegalArgumentException(String message) {
         super(message);
@@ -4,7 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.PAYMENT_REQUIRED)
-public class InsufficientFundsException extends RuntimeException {
+public class InsufficientFundsException extends BankingException {
 
     public InsufficientFundsException(String message) {
         super(message);
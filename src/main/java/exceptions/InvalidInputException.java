@@ -4,7 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.BAD_REQUEST)
-public class InvalidInputException extends RuntimeException{
+public class InvalidInputException extends BankingException {
 
     public InvalidInputException(String message) {
         super(message);
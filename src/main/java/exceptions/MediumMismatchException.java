@@ -5,7 +5,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.BAD_REQUEST)
-public class MediumMismatchException extends RuntimeException {
+public class MediumMismatchException extends BankingException {
 
     public MediumMismatchException(String message) {
         super(message);
@@ -0,0 +1,12 @@
+package exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ServiceUnavailableException extends BankingException {
+
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -4,7 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.BAD_REQUEST)
-public class TransactionMismatchException extends RuntimeException {
+public class TransactionMismatchException extends BankingException {
 
     public TransactionMismatchException(String message) {
         super(message);
@@ -4,7 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.UNAUTHORIZED)
-public class UnauthorizedAccessException extends RuntimeException {
+public class UnauthorizedAccessException extends BankingException {
 
     public UnauthorizedAccessException(String message) {
         super(message);
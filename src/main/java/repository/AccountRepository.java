@@ -2,17 +2,137 @@ package repository;
 
 
 import domain.Account;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface AccountRepository extends CrudRepository<Account, Long> {
 
+    // every write path below keeps the "accounts" cache in step, any new one has to as well;
+    // balances and amounts in the native queries are BIGINT cents, see domain.Money
+    @Override
+    @Cacheable(cacheNames = "accounts", key = "#p0", unless = "#result == null")
+    Optional<Account> findById(Long accountId);
+
+    @Override
+    @CachePut(cacheNames = "accounts", key = "#result.id")
+    <S extends Account> S save(S account);
+
+    @Override
+    @CacheEvict(cacheNames = "accounts", allEntries = true)
+    <S extends Account> Iterable<S> saveAll(Iterable<S> accounts);
+
+    @Override
+    @CacheEvict(cacheNames = "accounts", key = "#p0")
+    void deleteById(Long accountId);
+
+    @Override
+    @CacheEvict(cacheNames = "accounts", key = "#p0.id")
+    void delete(Account account);
+
+    // reads the row, not the cache, it answers conditional GETs
+    @Query("SELECT a.version FROM Account a WHERE a.id = ?1")
+    Long findVersionById(Long accountId);
 
     @Query(value = "SELECT * FROM ACCOUNT WHERE CUSTOMER_ID = ?1", nativeQuery = true)
     List<Account> findAllByCustomerId(Long customerId);
 
+    // (balance, rewards) read from the row, never from the cache or a loaded entity; empty when the account is missing
+    @Query("SELECT a.balance, a.rewards FROM Account a WHERE a.id = ?1")
+    List<Object[]> findBalanceAndRewardsById(Long accountId);
+
+    // ACCOUNT_BALANCE is nullable, every delta below starts a missing balance from 0 as ACCOUNT_REWARDS does,
+    // otherwise the UPDATE would still match the row and write NULL over the credit
+    @CacheEvict(cacheNames = "accounts", key = "#p0")
+    @Modifying
+    @Query(value = "UPDATE ACCOUNT SET ACCOUNT_BALANCE = COALESCE(ACCOUNT_BALANCE, 0) + ?2, ACCOUNT_VERSION = ACCOUNT_VERSION + 1 WHERE ACCOUNT_ID = ?1", nativeQuery = true)
+    int creditBalance(Long accountId, long amount);
+
+    // returns 0 when the account is missing or cannot cover the amount
+    @CacheEvict(cacheNames = "accounts", key = "#p0")
+    @Modifying
+    @Query(value = "UPDATE ACCOUNT SET ACCOUNT_BALANCE = COALESCE(ACCOUNT_BALANCE, 0) - ?2, ACCOUNT_VERSION = ACCOUNT_VERSION + 1 WHERE ACCOUNT_ID = ?1 AND COALESCE(ACCOUNT_BALANCE, 0) >= ?2", nativeQuery = true)
+    int debitBalance(Long accountId, long amount);
+
+    // debits a striped account after folding its already locked slot total into the ACCOUNT row
+    @CacheEvict(cacheNames = "accounts", key = "#p0")
+    @Modifying
+    @Query(value = "UPDATE ACCOUNT SET ACCOUNT_BALANCE = COALESCE(ACCOUNT_BALANCE, 0) + ?2 - ?3, ACCOUNT_VERSION = ACCOUNT_VERSION + 1 WHERE ACCOUNT_ID = ?1 AND COALESCE(ACCOUNT_BALANCE, 0) + ?2 >= ?3", nativeQuery = true)
+    int foldSlotsAndDebitBalance(Long accountId, long slotTotal, long amount);
+
+    // row lock held until the end of the transaction, returns null when the account is missing
+    @Query(value = "SELECT ACCOUNT_ID FROM ACCOUNT WHERE ACCOUNT_ID = ?1 FOR UPDATE", nativeQuery = true)
+    Long lockAccount(Long accountId);
+
+    // one statement for a withdrawal: folds an already locked slot total (0 if none) and applies both deltas,
+    // a negative delta is only applied if it leaves its column at or above zero
+    @CacheEvict(cacheNames = "accounts", key = "#p0")
+    @Modifying
+    @Query(value = "UPDATE ACCOUNT SET ACCOUNT_BALANCE = COALESCE(ACCOUNT_BALANCE, 0) + ?2 + ?3, ACCOUNT_REWARDS = COALESCE(ACCOUNT_REWARDS, 0) + ?4, ACCOUNT_VERSION = ACCOUNT_VERSION + 1"
+            + " WHERE ACCOUNT_ID = ?1 AND (?3 >= 0 OR COALESCE(ACCOUNT_BALANCE, 0) + ?2 + ?3 >= 0) AND (?4 >= 0 OR COALESCE(ACCOUNT_REWARDS, 0) + ?4 >= 0)", nativeQuery = true)
+    int adjustBalanceAndRewards(Long accountId, long slotTotal, long balanceDelta, int rewardsDelta);
+
+    @Query(value = "SELECT ACCOUNT_ID, COUNT(*) FROM ACCOUNT_BALANCE_SLOT GROUP BY ACCOUNT_ID", nativeQuery = true)
+    List<Object[]> countBalanceSlots();
+
+    @Query(value = "SELECT COUNT(*) FROM ACCOUNT_BALANCE_SLOT WHERE ACCOUNT_ID = ?1", nativeQuery = true)
+    Long countBalanceSlots(Long accountId);
+
+    @Query(value = "SELECT ACCOUNT_ID, CAST(COALESCE(SUM(SLOT_BALANCE), 0) AS SIGNED) FROM ACCOUNT_BALANCE_SLOT GROUP BY ACCOUNT_ID", nativeQuery = true)
+    List<Object[]> sumBalanceSlots();
+
+    // (account id, slot total) for the given accounts that have slots
+    @Query(value = "SELECT ACCOUNT_ID, CAST(COALESCE(SUM(SLOT_BALANCE), 0) AS SIGNED) FROM ACCOUNT_BALANCE_SLOT WHERE ACCOUNT_ID IN ?1 GROUP BY ACCOUNT_ID", nativeQuery = true)
+    List<Object[]> sumBalanceSlots(Collection<Long> accountIds);
+
+    @Query(value = "SELECT CAST(COALESCE(SUM(SLOT_BALANCE), 0) AS SIGNED) FROM ACCOUNT_BALANCE_SLOT WHERE ACCOUNT_ID = ?1", nativeQuery = true)
+    Long sumBalanceSlots(Long accountId);
+
+    // locks every slot of the account until the end of the transaction
+    @Query(value = "SELECT CAST(COALESCE(SUM(SLOT_BALANCE), 0) AS SIGNED) FROM ACCOUNT_BALANCE_SLOT WHERE ACCOUNT_ID = ?1 FOR UPDATE", nativeQuery = true)
+    Long lockBalanceSlots(Long accountId);
+
+    @Modifying
+    @Query(value = "UPDATE ACCOUNT_BALANCE_SLOT SET SLOT_BALANCE = SLOT_BALANCE + ?3 WHERE ACCOUNT_ID = ?1 AND SLOT_NO = ?2", nativeQuery = true)
+    int creditBalanceSlot(Long accountId, int slotNo, long amount);
+
+    @Modifying
+    @Query(value = "UPDATE ACCOUNT_BALANCE_SLOT SET SLOT_BALANCE = 0 WHERE ACCOUNT_ID = ?1", nativeQuery = true)
+    int clearBalanceSlots(Long accountId);
+
+    @Modifying
+    @Query(value = "DELETE FROM ACCOUNT_BALANCE_SLOT WHERE ACCOUNT_ID = ?1", nativeQuery = true)
+    int deleteBalanceSlots(Long accountId);
+
+    @Modifying
+    @Query(value = "INSERT INTO ACCOUNT_BALANCE_SLOT (ACCOUNT_ID, SLOT_NO, SLOT_BALANCE) VALUES (?1, ?2, 0)", nativeQuery = true)
+    int insertBalanceSlot(Long accountId, int slotNo);
+
+    @Query("SELECT a.id FROM Account a WHERE a.id IN ?1")
+    List<Long> findExistingIds(Collection<Long> accountIds);
+
+    @Query(value = "SELECT * FROM ACCOUNT WHERE ACCOUNT_ID > ?1 ORDER BY ACCOUNT_ID LIMIT ?2", nativeQuery = true)
+    List<Account> findPageAfter(Long afterAccountId, int limit);
+
+    // Integer.MIN_VALUE makes the MySQL driver stream rows off the cursor instead of buffering the whole result
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT a FROM Account a ORDER BY a.id")
+    Stream<Account> streamAllOrderedById();
+
 }
@@ -2,10 +2,14 @@ package repository;
 
 
 import domain.Bill;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -13,4 +17,21 @@ public interface BillRepository extends JpaRepository<Bill, Long> {
 
     @Query(value="SELECT * FROM BILL WHERE ACCOUNT_ID = ?1", nativeQuery = true)
     public List<Bill> findByAccountId(Long accountId);
+
+    @Query(value="SELECT B.* FROM BILL B JOIN ACCOUNT A ON A.ACCOUNT_ID = B.ACCOUNT_ID WHERE A.CUSTOMER_ID = ?1", nativeQuery = true)
+    public List<Bill> findAllByCustomerId(Long customerId);
+
+    // keyset page of (id, upcomingPaymentDate) pairs for every recurring bill that has a next payment
+    @Query("SELECT b.id, b.upcomingPaymentDate FROM Bill b WHERE b.status = domain.enums.BillStatus.RECURRING"
+            + " AND b.upcomingPaymentDate IS NOT NULL AND b.id > ?1 ORDER BY b.id")
+    public List<Object[]> findRecurringDueDatesAfter(Long afterBillId, Limit limit);
+
+    // only advances bills that are still recurring and due, so the caller can detect a concurrent change
+    @Modifying(clearAutomatically = true)
+    @Query(value="UPDATE BILL SET UPCOMING_PAYMENT_DATE = ?2, PAYMENT_DATE = ?3, VERSION = VERSION + 1"
+            + " WHERE ID IN (?1) AND STATUS = 'RECURRING' AND UPCOMING_PAYMENT_DATE <= ?4", nativeQuery = true)
+    public int advanceUpcomingPaymentDate(Collection<Long> billIds, LocalDate nextPaymentDate, String paymentDate, LocalDate dueBy);
+
+    @Query("SELECT b.version FROM Bill b WHERE b.id = ?1")
+    public Long findVersionById(Long billId);
 }
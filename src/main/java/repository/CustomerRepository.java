@@ -2,11 +2,40 @@ package repository;
 
 
 import domain.Customer;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 @Repository
 public interface CustomerRepository extends CrudRepository<Customer, Long> {
 
-    }
+    // every write path below keeps the "customers" cache in step, any new one has to as well
+    @Override
+    @Cacheable(cacheNames = "customers", key = "#p0", unless = "#result == null")
+    Optional<Customer> findById(Long customerId);
+
+    @Override
+    @CachePut(cacheNames = "customers", key = "#result.id")
+    <S extends Customer> S save(S customer);
+
+    @Override
+    @CacheEvict(cacheNames = "customers", allEntries = true)
+    <S extends Customer> Iterable<S> saveAll(Iterable<S> customers);
+
+    @Override
+    @CacheEvict(cacheNames = "customers", key = "#p0")
+    void deleteById(Long customerId);
+
+    @Override
+    @CacheEvict(cacheNames = "customers", key = "#p0.id")
+    void delete(Customer customer);
 
+    // reads the row, not the cache, it answers conditional GETs
+    @Query("SELECT c.version FROM Customer c WHERE c.id = ?1")
+    Long findVersionById(Long customerId);
+}
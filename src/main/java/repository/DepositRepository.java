@@ -2,14 +2,41 @@ package repository;
 
 
 import domain.Deposit;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface DepositRepository extends CrudRepository<Deposit, Long> {
 
 
-    @Query(value="SELECT * FROM DEPOSIT WHERE ACCOUNT_ID = ?1", nativeQuery = true)
-    public Iterable<Deposit> findAllByAccountId(Long accountId);
+    // keyset page of one account's deposits, null filters are ignored; enums are passed by name and amounts in cents.
+    // MySQL folds the constant null checks away, so each filter combination plans against the (account_id, ...) indexes
+    @Query(value="SELECT * FROM DEPOSIT WHERE ACCOUNT_ID = ?1 AND DEPOSIT_ID > ?2"
+            + " AND (?3 IS NULL OR TRANSACTION_DATE >= ?3)"
+            + " AND (?4 IS NULL OR TRANSACTION_DATE <= ?4)"
+            + " AND (?5 IS NULL OR DEPOSIT_STATUS = ?5)"
+            + " AND (?6 IS NULL OR DEPOSIT_MEDIUM = ?6)"
+            + " AND (?7 IS NULL OR DEPOSIT_TYPE = ?7)"
+            + " AND (?8 IS NULL OR DEPOSIT_AMOUNT >= ?8)"
+            + " AND (?9 IS NULL OR DEPOSIT_AMOUNT <= ?9)"
+            + " ORDER BY DEPOSIT_ID LIMIT ?10", nativeQuery = true)
+    public List<Deposit> findPageByAccountId(Long accountId, Long afterDepositId, LocalDate fromDate, LocalDate toDate,
+                                             String status, String medium, String type, Long minAmount, Long maxAmount, int limit);
+
+    @Query(value="SELECT * FROM DEPOSIT WHERE DEPOSIT_STATUS = 'PENDING' AND DEPOSIT_ID > ?1 ORDER BY DEPOSIT_ID LIMIT ?2", nativeQuery = true)
+    public List<Deposit> findPendingAfter(Long afterDepositId, int limit);
+
+    // only flips deposits that are still pending, so the caller can detect a concurrent settlement
+    @Modifying(clearAutomatically = true)
+    @Query(value="UPDATE DEPOSIT SET DEPOSIT_STATUS = 'COMPLETED', DEPOSIT_VERSION = DEPOSIT_VERSION + 1 WHERE DEPOSIT_STATUS = 'PENDING' AND DEPOSIT_ID IN (?1)", nativeQuery = true)
+    public int markCompleted(Collection<Long> depositIds);
+
+    @Query("SELECT d.version FROM Deposit d WHERE d.depositId = ?1")
+    public Long findVersionById(Long depositId);
 }
@@ -0,0 +1,48 @@
+package repository;
+
+
+import domain.IdempotencyRecord;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+@Repository
+public interface IdempotencyRecordRepository extends CrudRepository<IdempotencyRecord, String> {
+
+    // a plain INSERT, unlike save() it fails with a duplicate key when another request already claimed the key
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO IDEMPOTENCY_RECORD (IDEMPOTENCY_KEY, REQUEST_HASH, STATUS_CODE, CREATED_AT) VALUES (?1, ?2, 0, ?3)", nativeQuery = true)
+    int claim(String key, String requestHash, Instant createdAt);
+
+    // takes over a claim whose request never finished; guarded by the claim time that was read, so only one retry wins
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE IDEMPOTENCY_RECORD SET CREATED_AT = ?3 WHERE IDEMPOTENCY_KEY = ?1 AND STATUS_CODE = 0 AND CREATED_AT = ?2", nativeQuery = true)
+    int reclaim(String key, Instant abandonedClaimedAt, Instant claimedAt);
+
+    // complete and release only touch the claim made at claimedAt, not one a retry has taken over since
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE IDEMPOTENCY_RECORD SET STATUS_CODE = ?3, RESPONSE_BODY = ?4 WHERE IDEMPOTENCY_KEY = ?1 AND STATUS_CODE = 0 AND CREATED_AT = ?2", nativeQuery = true)
+    int complete(String key, Instant claimedAt, int statusCode, String responseBody);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM IDEMPOTENCY_RECORD WHERE IDEMPOTENCY_KEY = ?1 AND STATUS_CODE = 0 AND CREATED_AT = ?2", nativeQuery = true)
+    int release(String key, Instant claimedAt);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM IDEMPOTENCY_RECORD WHERE IDEMPOTENCY_KEY = ?1 AND CREATED_AT < ?2", nativeQuery = true)
+    int deleteExpired(String key, Instant createdBefore);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM IDEMPOTENCY_RECORD WHERE CREATED_AT < ?1", nativeQuery = true)
+    int deleteAllExpired(Instant createdBefore);
+}
@@ -2,9 +2,29 @@ package repository;
 
 
 import domain.Withdrawal;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface WithdrawalRepository extends CrudRepository<Withdrawal, Long> {
+
+    // keyset page of one payer's withdrawals, null filters are ignored; status is the enum name
+    @Query(value = "SELECT * FROM WITHDRAWAL WHERE PAYER_ID = ?1 AND ID > ?2"
+            + " AND (?3 IS NULL OR TRANSACTION_DATE >= ?3)"
+            + " AND (?4 IS NULL OR TRANSACTION_DATE <= ?4)"
+            + " AND (?5 IS NULL OR STATUS = ?5)"
+            + " ORDER BY ID LIMIT ?6", nativeQuery = true)
+    List<Withdrawal> findPageByPayerId(Long payerId, Long afterId, LocalDate fromDate, LocalDate toDate, String status, int limit);
+
+    // SELECT ... FOR UPDATE, concurrent updates and deletes of one withdrawal then apply their balance effects in turn
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM Withdrawal w WHERE w.id = ?1")
+    Optional<Withdrawal> findForUpdateById(Long withdrawalId);
 }
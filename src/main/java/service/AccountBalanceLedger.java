@@ -0,0 +1,232 @@
+package service;
+
+
+import domain.Account;
+import domain.Money;
+import exceptions.InvalidInputException;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import repository.AccountRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Applies balance changes, spreading credits to striped accounts over ACCOUNT_BALANCE_SLOT rows
+// so concurrent credits do not queue on the ACCOUNT row lock. Debits lock all slots and fold them
+// into the ACCOUNT row first, so the balance a debit sees is always exact. Amounts are in cents (Money minor units).
+@Service
+public class AccountBalanceLedger {
+
+    public static final int MAX_STRIPES = 64;
+
+    private static final Logger log = LoggerFactory.getLogger(AccountBalanceLedger.class);
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    // striped account id -> number of slots, filled by restripe, the refresh and the slot reads below.
+    // It only routes credits and picks the fast path: a stale entry costs a fallback to the ACCOUNT row, and an
+    // account missing from it (just striped, or striped on another node) is checked against its slot rows
+    // in the caller's transaction wherever the answer decides a balance
+    private final Map<Long, Integer> stripedAccounts = new ConcurrentHashMap<>();
+
+
+    @Scheduled(fixedDelayString = "${banking.accounts.stripe-refresh-ms:30000}")
+    public void refreshStripedAccounts() {
+
+        Map<Long, Integer> current = new HashMap<>();
+        for (Object[] row : accountRepository.countBalanceSlots()) {
+            current.put(((Number) row[0]).longValue(), ((Number) row[1]).intValue());
+        }
+
+        stripedAccounts.keySet().retainAll(current.keySet());
+        stripedAccounts.putAll(current);
+    }
+
+    // reads the slot rows when the account is not known to be striped
+    public boolean isStriped(Long accountId) {
+
+        if (stripedAccounts.containsKey(accountId)) {
+            return true;
+        }
+        long stripes = accountRepository.countBalanceSlots(accountId);
+        if (stripes == 0) {
+            return false;
+        }
+        stripedAccounts.put(accountId, (int) stripes);
+        return true;
+    }
+
+    // returns false if the account does not exist
+    @Transactional
+    public boolean credit(Long accountId, long amount, long spreadKey) {
+
+        Integer stripes = stripedAccounts.get(accountId);
+        if (stripes != null) {
+            int slotNo = Math.floorMod(Long.hashCode(spreadKey * 0x9E3779B97F4A7C15L), stripes);
+            if (accountRepository.creditBalanceSlot(accountId, slotNo, amount) == 1) {
+                return true;
+            }
+            // striping was turned off elsewhere, fall through to the ACCOUNT row
+            stripedAccounts.remove(accountId);
+        }
+
+        return accountRepository.creditBalance(accountId, amount) == 1;
+    }
+
+    // returns false if the account does not exist or its balance cannot cover the amount
+    @Transactional
+    public boolean debit(Long accountId, long amount) {
+
+        // slots only ever add to the balance, so a row that covers the amount alone is always enough;
+        // when it does not, the slots are folded in even if this node does not know the account is striped
+        if (!stripedAccounts.containsKey(accountId) && accountRepository.debitBalance(accountId, amount) == 1) {
+            return true;
+        }
+
+        long slotTotal = accountRepository.lockBalanceSlots(accountId);
+        if (accountRepository.foldSlotsAndDebitBalance(accountId, slotTotal, amount) != 1) {
+            return false;
+        }
+        accountRepository.clearBalanceSlots(accountId);
+        return true;
+    }
+
+    @Transactional
+    public boolean applyDelta(Long accountId, long delta, long spreadKey) {
+        return delta < 0 ? debit(accountId, -delta) : credit(accountId, delta, spreadKey);
+    }
+
+    // applies a withdrawal's net balance and rewards change in one UPDATE, returns false if the account
+    // does not exist or a debit would leave the balance or rewards below zero
+    @Transactional
+    public boolean adjust(Long accountId, long balanceDelta, int rewardsDelta) {
+
+        // only a balance debit needs the exact balance, so only then are the slots locked and folded,
+        // and for an account not known to be striped only once the row alone could not cover it
+        boolean fold = balanceDelta < 0 && stripedAccounts.containsKey(accountId);
+        if (!fold && accountRepository.adjustBalanceAndRewards(accountId, 0L, balanceDelta, rewardsDelta) == 1) {
+            return true;
+        }
+        if (!fold && balanceDelta >= 0) {
+            return false;
+        }
+
+        long slotTotal = accountRepository.lockBalanceSlots(accountId);
+        if (accountRepository.adjustBalanceAndRewards(accountId, slotTotal, balanceDelta, rewardsDelta) != 1) {
+            return false;
+        }
+        accountRepository.clearBalanceSlots(accountId);
+        return true;
+    }
+
+    // the slot rows are always read, an account without slots simply adds 0
+    public Money availableBalance(Account account) {
+        return withSlots(account, accountRepository.sumBalanceSlots(account.getId()));
+    }
+
+    // the same for a balance read straight from the ACCOUNT row
+    public Money availableBalance(Long accountId, Money rowBalance) {
+
+        long balance = rowBalance == null ? 0L : rowBalance.minorUnits();
+        return Money.ofMinorUnits(Money.add(balance, accountRepository.sumBalanceSlots(accountId)));
+    }
+
+    // copies striped accounts with their full balance, the loaded entities are left untouched
+    public Account withAvailableBalance(Account account) {
+
+        if (!isStriped(account.getId())) {
+            return account;
+        }
+        return copyWithBalance(account, availableBalance(account));
+    }
+
+    public List<Account> withAvailableBalances(List<Account> accounts) {
+
+        if (accounts.isEmpty()) {
+            return accounts;
+        }
+        List<Long> accountIds = new ArrayList<>(accounts.size());
+        for (Account account : accounts) {
+            accountIds.add(account.getId());
+        }
+        Map<Long, Long> slotTotals = slotTotals(accountIds);
+        if (slotTotals.isEmpty()) {
+            return accounts;
+        }
+
+        List<Account> result = new ArrayList<>(accounts.size());
+        for (Account account : accounts) {
+            Long slotTotal = slotTotals.get(account.getId());
+            result.add(slotTotal == null ? account : copyWithBalance(account, withSlots(account, slotTotal)));
+        }
+        return result;
+    }
+
+    // slot totals of every striped account in one query, for callers that can not query per row
+    public Map<Long, Long> slotTotals() {
+        return toSlotTotals(accountRepository.sumBalanceSlots());
+    }
+
+    // slot totals of the given accounts in one query, accounts without slots are left out
+    public Map<Long, Long> slotTotals(Collection<Long> accountIds) {
+        return toSlotTotals(accountRepository.sumBalanceSlots(accountIds));
+    }
+
+    // folds any existing slots back into the ACCOUNT row and re-stripes it, 0 turns striping off
+    @Transactional
+    public void restripe(Long accountId, int stripes) {
+
+        if (stripes < 0 || stripes > MAX_STRIPES) {
+            throw new InvalidInputException("Number of balance stripes (" + stripes + ") must be between 0 and " + MAX_STRIPES + ".");
+        }
+
+        long slotTotal = accountRepository.lockBalanceSlots(accountId);
+        accountRepository.creditBalance(accountId, slotTotal);
+        accountRepository.deleteBalanceSlots(accountId);
+
+        for (int slotNo = 0; slotNo < stripes; slotNo++) {
+            accountRepository.insertBalanceSlot(accountId, slotNo);
+        }
+
+        if (stripes == 0) {
+            stripedAccounts.remove(accountId);
+        } else {
+            stripedAccounts.put(accountId, stripes);
+        }
+
+        log.info("Account with Id (" + accountId + ") balance striped across " + stripes + " slots.");
+    }
+
+    // the row balance plus the slot total, for accounts created without a balance the row counts as zero
+    public Money withSlots(Account account, long slotTotal) {
+        long balance = account.getBalance() == null ? 0L : account.getBalance().minorUnits();
+        return Money.ofMinorUnits(Money.add(balance, slotTotal));
+    }
+
+    private Map<Long, Long> toSlotTotals(List<Object[]> rows) {
+
+        Map<Long, Long> slotTotals = new HashMap<>();
+        for (Object[] row : rows) {
+            slotTotals.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+        }
+        return slotTotals;
+    }
+
+    private Account copyWithBalance(Account account, Money balance) {
+
+        Account copy = new Account();
+        BeanUtils.copyProperties(account, copy);
+        copy.setBalance(balance);
+        return copy;
+    }
+}
@@ -1,79 +1,201 @@
 package service;
 
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import domain.Account;
-import domain.Customer;
 import exceptions.ResourceNotFoundException;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 import repository.AccountRepository;
-import repository.CustomerRepository;
 import successfulresponse.ApiResponse;
+import successfulresponse.PagedApiResponse;
+import successfulresponse.ResponseMessages;
+import successfulresponse.SingleApiResponse;
+import util.PageLimits;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
 
 @Service
+@Timed(value = "banking.service", histogram = true)
 public class AccountService {
 
+    // a servlet async timeout of zero or less never expires
+    private static final long NO_TIMEOUT = -1L;
+
+    private static final int STREAM_CHUNK_BYTES = 8192;
+
     @Autowired
     private AccountRepository accountRepository;
 
     @Autowired
-    private CustomerRepository customerRepository;
+    private EntityLookup entityLookup;
 
+    @Autowired
+    private AccountBalanceLedger accountBalanceLedger;
 
-    public ResponseEntity<?> getAllAccounts() {
-        //New instance of successful response
-        ApiResponse<Account> successfulResponse = new ApiResponse<>();
+    @Autowired
+    private ObjectMapper objectMapper;
 
-        //storing a code in successfulResponse (HttpStatus.ok.value = 200)
-        successfulResponse.setCode(HttpStatus.OK.value());
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
-        //Storing message into successfulResponse
-        successfulResponse.setMessage("Success");
+    @Autowired
+    private ConditionalGet conditionalGet;
 
-        //Iterable of type Account. Its job is to find all accounts
-        Iterable<Account> allAccounts = accountRepository.findAll();
+    @PersistenceContext
+    private EntityManager entityManager;
 
-        //New list to store accounts
-        List<Account> listOfAccounts = new ArrayList<>();
+    @Value("${banking.accounts.stream-workers:4}")
+    private int streamWorkerCount;
 
-        //Method referencing. adding what is in allAccounts into listOfAccounts
-        allAccounts.forEach(listOfAccounts::add);
+    private ExecutorService streamWorkers;
 
-        //storing the 'Data' into successfulResponse
-        successfulResponse.setData(listOfAccounts);
 
+    @PostConstruct
+    public void startStreamWorkers() {
+        streamWorkers = Executors.newFixedThreadPool(streamWorkerCount, new CustomizableThreadFactory("account-stream-"));
+    }
+
+    @PreDestroy
+    public void stopStreamWorkers() {
+        streamWorkers.shutdown();
+    }
+
+
+    public ResponseEntity<?> getAllAccounts(Integer limit, Long after) {
+        int pageLimit = PageLimits.resolve(limit);
+
+        // keyset page on ACCOUNT_ID, one extra row tells us whether another page exists
+        List<Account> listOfAccounts = accountRepository.findPageAfter(PageLimits.resolveCursor(after), pageLimit + 1);
+
+        Long nextCursor = null;
+        if (listOfAccounts.size() > pageLimit) {
+            listOfAccounts = listOfAccounts.subList(0, pageLimit);
+            nextCursor = listOfAccounts.get(pageLimit - 1).getId();
+        }
+
+        PagedApiResponse<Account> successfulResponse = new PagedApiResponse<>(HttpStatus.OK.value(), "Success", accountBalanceLedger.withAvailableBalances(listOfAccounts), nextCursor);
         return new ResponseEntity<>(successfulResponse, HttpStatus.OK);
     }
 
+    // the whole table can take longer than any request timeout, so this response alone never times out;
+    // every other async request keeps the application's default
+    public ResponseEntity<ResponseBodyEmitter> streamAllAccounts() {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(NO_TIMEOUT);
+        streamWorkers.execute(() -> {
+            try {
+                writeAllAccounts(new EmitterOutputStream(emitter));
+                emitter.complete();
+            } catch (IOException | RuntimeException e) {
+                // the JSON is left unfinished, a truncated list must not look complete
+                emitter.completeWithError(e);
+            }
+        });
 
-    private void verifyAccount(Long accountId) throws ResourceNotFoundException {
-        Optional<Account> account = accountRepository.findById(accountId);
-        if (account.isEmpty()) {
-            throw new ResourceNotFoundException("Account with ID " + accountId + " Does not exits ");
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(emitter);
+    }
+
+    private void writeAllAccounts(OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = objectMapper.createGenerator(new BufferedOutputStream(outputStream, STREAM_CHUNK_BYTES))) {
+            // if the cursor or a write fails, closing must not finish the JSON, a truncated list would look complete
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            generator.writeStartObject();
+            generator.writeNumberField("code", HttpStatus.OK.value());
+            generator.writeStringField("message", "Success");
+            generator.writeArrayFieldStart("data");
+
+            // striped balances are summed up front, no other statement can run while the cursor is open
+            Map<Long, Long> slotTotals = accountBalanceLedger.slotTotals();
+
+            // rows are written as they come off the cursor and detached so the persistence context stays empty
+            TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionManager);
+            readOnlyTransaction.setReadOnly(true);
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<Account> allAccounts = accountRepository.streamAllOrderedById()) {
+                    allAccounts.forEach(account -> {
+                        Long slotTotal = slotTotals.get(account.getId());
+                        if (slotTotal != null) {
+                            entityManager.detach(account);
+                            account.setBalance(accountBalanceLedger.withSlots(account, slotTotal));
+                        }
+                        try {
+                            generator.writeObject(account);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        entityManager.detach(account);
+                    });
+                }
+            });
+
+            generator.writeEndArray();
+            generator.writeEndObject();
         }
     }
 
-    public ResponseEntity<?> getAccountById(Long accountId) {
-        verifyAccount(accountId);
-        ApiResponse<Account> successfulResponse = new ApiResponse<>();
-        successfulResponse.setCode(HttpStatus.OK.value());
-        successfulResponse.setMessage("Successfully fetched account");
-        Optional<Account> account = accountRepository.findById(accountId);
-        List<Account> listOfAccounts = new ArrayList<>();
-        Account myAccount = account.get();
-        listOfAccounts.add(myAccount);
-        successfulResponse.setData(listOfAccounts);
-        return new ResponseEntity<>(successfulResponse, HttpStatus.OK);
+    // hands each buffered chunk of the streamed JSON to the emitter as raw bytes
+    private static class EmitterOutputStream extends OutputStream {
+
+        private final ResponseBodyEmitter emitter;
+
+        EmitterOutputStream(ResponseBodyEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            emitter.send(new byte[]{(byte) b});
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len > 0) {
+                emitter.send(Arrays.copyOfRange(b, off, off + len));
+            }
+        }
+    }
+
+
+    // striped balances change without bumping the version, so those accounts get no ETag
+    public ResponseEntity<?> getAccountById(Long accountId, String ifNoneMatch) {
+        boolean striped = accountBalanceLedger.isStriped(accountId);
+        if (!striped) {
+            ResponseEntity<?> notModified = conditionalGet.notModified(ifNoneMatch, "account", () -> accountRepository.findVersionById(accountId));
+            if (notModified != null) {
+                return notModified;
+            }
+        }
+        Account account = entityLookup.account(accountId);
+        SingleApiResponse<Account> successfulResponse = new SingleApiResponse<>(HttpStatus.OK.value(), ResponseMessages.ACCOUNT_RETRIEVED, accountBalanceLedger.withAvailableBalance(account));
+        return conditionalGet.withETag(new ResponseEntity<>(successfulResponse, HttpStatus.OK), striped ? null : account.getVersion());
     }
 
     public ResponseEntity<?> createAccount(Account account, Long customerId) {
-        verifyCustomer(customerId);
+        entityLookup.customer(customerId);
         verifyAccountIdMatchesCustomerId(customerId, account);
         account = accountRepository.save(account);
         ApiResponse<Account> successfulResponse = new ApiResponse<>();
@@ -86,7 +208,11 @@ public class AccountService {
     }
 
     public ResponseEntity<?> updateAccount(Account account, Long pollId) {
-        verifyAccount(pollId);
+        Account existingAccount = entityLookup.account(pollId);
+        // clients that do not send a version update whatever is current
+        if (account.getVersion() == null) {
+            account.setVersion(existingAccount.getVersion());
+        }
         account = accountRepository.save(account);
         ApiResponse<Account> successfulResponse = new ApiResponse<>();
         successfulResponse.setCode(HttpStatus.OK.value());
@@ -98,17 +224,33 @@ public class AccountService {
     }
 
     public ResponseEntity<?> deleteAccount(Long accountId) {
-        verifyAccount(accountId);
+        Account account = entityLookup.account(accountId);
         ApiResponse<?> apiResponse = new ApiResponse<>();
         apiResponse.setCode(HttpStatus.OK.value());
         apiResponse.setMessage("Account successfully deleted");
-        accountRepository.deleteById(accountId);
+        accountRepository.delete(account);
+        entityLookup.forget(Account.class, accountId);
         return new ResponseEntity<>(apiResponse, HttpStatus.OK);
     }
 
+    public ResponseEntity<?> updateBalanceStripes(Long accountId, int stripes) {
+        Account account = entityLookup.account(accountId);
+        accountBalanceLedger.restripe(accountId, stripes);
+        // restriping folds the slots into the ACCOUNT row with a native update, so the row is read again
+        entityManager.detach(account);
+        entityLookup.forget(Account.class, accountId);
+        ApiResponse<Account> successfulResponse = new ApiResponse<>();
+        successfulResponse.setCode(HttpStatus.OK.value());
+        successfulResponse.setMessage(stripes == 0 ? "Account balance striping turned off" : "Account balance striped across " + stripes + " slots");
+        List<Account> listOfAccounts = new ArrayList<>();
+        listOfAccounts.add(accountBalanceLedger.withAvailableBalance(entityLookup.account(accountId)));
+        successfulResponse.setData(listOfAccounts);
+        return new ResponseEntity<>(successfulResponse, HttpStatus.OK);
+    }
+
     public ResponseEntity<?> getAllAccountsForCustomer(Long customerId) {
         // check if the customer exists via customerId
-        verifyCustomer(customerId);
+        entityLookup.customer(customerId);
         // get all accounts for the customer
         List<Account> allAccounts = accountRepository.findAllByCustomerId(customerId);
         // Create an instance of ApiResponse
@@ -118,17 +260,10 @@ public class AccountService {
         //Store message in ApiResponse
         successfulResponse.setMessage("Success");
         //Store data in ApiResponse
-        successfulResponse.setData(allAccounts);
+        successfulResponse.setData(accountBalanceLedger.withAvailableBalances(allAccounts));
         return new ResponseEntity<>(successfulResponse, HttpStatus.OK);
     }
 
-    private void verifyCustomer(Long customerId) throws ResourceNotFoundException {
-        Optional<Customer> customer = customerRepository.findById(customerId);
-        if(customer.isEmpty()) {
-            throw new ResourceNotFoundException("Customer with id " + customerId + " not found");
-        }
-    }
-
     private void verifyAccountIdMatchesCustomerId(Long customerId, Account account) {
         if (!customerId.equals(account.getCustomerId())) {
             throw new ResourceNotFoundException("Customer id: " + customerId + " does not match the entered customer id: " + account.getCustomerId());
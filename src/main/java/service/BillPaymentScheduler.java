@@ -0,0 +1,334 @@
+package service;
+
+
+import domain.Bill;
+import domain.Money;
+import domain.enums.BillStatus;
+import exceptions.ConflictException;
+import exceptions.InternalServerErrorException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import repository.BillRepository;
+import util.RecurringDateCalendar;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Pays RECURRING bills on their upcoming payment date. Due dates live in an in-memory queue ordered by date,
+// rebuilt from the database at startup and fed by BillService, so a tick only reads the bills that are due.
+@Service
+public class BillPaymentScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(BillPaymentScheduler.class);
+
+    @Autowired
+    private BillRepository billRepository;
+
+    @Autowired
+    private AccountBalanceLedger accountBalanceLedger;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${banking.bills.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${banking.bills.workers:4}")
+    private int workers;
+
+    @Value("${banking.bills.scheduled:true}")
+    private boolean scheduled;
+
+    // may hold stale or duplicate entries, the bill row is always re-read before it is paid
+    private final PriorityQueue<DueBill> dueIndex = new PriorityQueue<>();
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    private volatile boolean indexLoaded;
+
+    private ExecutorService workerPool;
+
+
+    @PostConstruct
+    public void startWorkers() {
+        workerPool = Executors.newFixedThreadPool(workers, new CustomizableThreadFactory("bill-payment-worker-"));
+    }
+
+    @PreDestroy
+    public void stopWorkers() {
+        workerPool.shutdown();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildDueIndex() {
+
+        List<DueBill> loaded = new ArrayList<>();
+        long cursor = 0L;
+
+        List<Object[]> page = billRepository.findRecurringDueDatesAfter(cursor, Limit.of(chunkSize));
+        while (!page.isEmpty()) {
+            for (Object[] row : page) {
+                loaded.add(new DueBill((Long) row[0], (LocalDate) row[1]));
+            }
+            cursor = (Long) page.get(page.size() - 1)[0];
+            page = billRepository.findRecurringDueDatesAfter(cursor, Limit.of(chunkSize));
+        }
+
+        // bills scheduled by BillService while loading are already in the queue and stay there
+        synchronized (dueIndex) {
+            dueIndex.addAll(loaded);
+        }
+        indexLoaded = true;
+
+        log.info("Loaded " + loaded.size() + " recurring bills into the due date index.");
+    }
+
+    // called whenever a bill gets a new upcoming payment date
+    public void schedule(Long billId, LocalDate upcomingPaymentDate) {
+
+        if (billId == null || upcomingPaymentDate == null) {
+            return;
+        }
+        synchronized (dueIndex) {
+            dueIndex.add(new DueBill(billId, upcomingPaymentDate));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${banking.bills.fixed-delay-ms:60000}", initialDelayString = "${banking.bills.fixed-delay-ms:60000}")
+    public void payOnSchedule() {
+
+        if (!scheduled || !indexLoaded) {
+            return;
+        }
+
+        try {
+            payDueBills(LocalDate.now());
+        } catch (ConflictException e) {
+            log.info("Skipping scheduled bill payments: " + e.getMessage());
+        }
+    }
+
+    public int payDueBills(LocalDate today) {
+
+        if (!running.compareAndSet(false, true)) {
+            throw new ConflictException("A bill payment run is already in progress.");
+        }
+
+        try {
+            int billsDue = 0;
+            int billsPaid = 0;
+            // nothing goes back into the index until the run is over, so a bill is looked at once per run
+            List<DueBill> requeue = new ArrayList<>();
+
+            List<Long> dueBillIds = pollDue(today);
+            while (!dueBillIds.isEmpty()) {
+                billsDue += dueBillIds.size();
+                billsPaid += payChunk(dueBillIds, today, requeue);
+                dueBillIds = pollDue(today);
+            }
+
+            synchronized (dueIndex) {
+                dueIndex.addAll(requeue);
+            }
+
+            if (billsDue > 0) {
+                log.info("Bill payment run finished: " + billsPaid + " of " + billsDue + " due bills paid.");
+            }
+            return billsPaid;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private List<Long> pollDue(LocalDate today) {
+
+        long dueDay = today.toEpochDay();
+        Set<Long> billIds = new LinkedHashSet<>();
+
+        synchronized (dueIndex) {
+            while (billIds.size() < chunkSize && !dueIndex.isEmpty() && dueIndex.peek().dueDay <= dueDay) {
+                billIds.add(dueIndex.poll().billId);
+            }
+        }
+        return new ArrayList<>(billIds);
+    }
+
+    private int payChunk(List<Long> dueBillIds, LocalDate today, List<DueBill> requeue) {
+
+        // every bill of an account lands in the same partition, so one worker owns its debits
+        List<List<Bill>> partitions = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            partitions.add(new ArrayList<>());
+        }
+
+        // the index can be stale, only bills that are still recurring and due are paid
+        for (Bill bill : billRepository.findAllById(dueBillIds)) {
+            if (bill.getStatus() != BillStatus.RECURRING || bill.getUpcomingPaymentDate() == null) {
+                continue;
+            }
+            if (bill.getUpcomingPaymentDate().isAfter(today)) {
+                requeue.add(new DueBill(bill.getId(), bill.getUpcomingPaymentDate()));
+                continue;
+            }
+            partitions.get(Math.floorMod(bill.getAccountId(), workers)).add(bill);
+        }
+
+        List<Future<PartitionResult>> results = new ArrayList<>(workers);
+        for (List<Bill> partition : partitions) {
+            if (!partition.isEmpty()) {
+                results.add(workerPool.submit(() -> payPartition(partition, today)));
+            }
+        }
+
+        int billsPaid = 0;
+        for (Future<PartitionResult> result : results) {
+            try {
+                PartitionResult partitionResult = result.get();
+                billsPaid += partitionResult.billsPaid;
+                requeue.addAll(partitionResult.requeue);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InternalServerErrorException("Bill payment run was interrupted.", e);
+            } catch (ExecutionException e) {
+                throw new InternalServerErrorException("Bill payment run failed.", e.getCause());
+            }
+        }
+        return billsPaid;
+    }
+
+    private PartitionResult payPartition(List<Bill> bills, LocalDate today) {
+
+        try {
+            return new TransactionTemplate(transactionManager).execute(status -> applyPartition(bills, today));
+        } catch (RuntimeException e) {
+            // the whole partition rolled back, its bills are still due and are retried on the next tick
+            log.warn("Bill payment partition of " + bills.size() + " bills rolled back: " + e.getMessage());
+
+            PartitionResult result = new PartitionResult();
+            for (Bill bill : bills) {
+                result.requeue.add(new DueBill(bill.getId(), bill.getUpcomingPaymentDate()));
+            }
+            return result;
+        }
+    }
+
+    private PartitionResult applyPartition(List<Bill> bills, LocalDate today) {
+
+        // ascending account order, the same order transfers lock ACCOUNT rows in
+        Map<Long, List<Bill>> billsByAccount = new TreeMap<>();
+        for (Bill bill : bills) {
+            billsByAccount.computeIfAbsent(bill.getAccountId(), accountId -> new ArrayList<>()).add(bill);
+        }
+
+        PartitionResult result = new PartitionResult();
+        List<Bill> paidBills = new ArrayList<>(bills.size());
+
+        for (Map.Entry<Long, List<Bill>> accountBills : billsByAccount.entrySet()) {
+            Long accountId = accountBills.getKey();
+            List<Bill> dueBills = accountBills.getValue();
+
+            // one debit for all of the account's bills when the balance covers them, which is the common case
+            long total = 0L;
+            for (Bill bill : dueBills) {
+                total = Money.add(total, bill.getPaymentAmount().minorUnits());
+            }
+
+            if (accountBalanceLedger.debit(accountId, total)) {
+                paidBills.addAll(dueBills);
+            } else {
+                // otherwise pay what fits, oldest bill first; the rest is tried again tomorrow
+                dueBills.sort(Comparator.comparing(Bill::getId));
+                for (Bill bill : dueBills) {
+                    if (accountBalanceLedger.debit(accountId, bill.getPaymentAmount().minorUnits())) {
+                        paidBills.add(bill);
+                    } else {
+                        result.requeue.add(new DueBill(bill.getId(), today.plusDays(1)));
+                    }
+                }
+            }
+        }
+
+        // next payment dates for the whole partition in one pass, paid bill ids grouped by date for one UPDATE per date
+        LocalDate[] paidDates = new LocalDate[paidBills.size()];
+        int[] recurringDates = new int[paidBills.size()];
+        for (int i = 0; i < paidBills.size(); i++) {
+            Bill bill = paidBills.get(i);
+            paidDates[i] = bill.getUpcomingPaymentDate();
+            recurringDates[i] = bill.getRecurringDate() == null ? paidDates[i].getDayOfMonth() : bill.getRecurringDate();
+        }
+        LocalDate[] nextPaymentDates = RecurringDateCalendar.nextDueDates(paidDates, recurringDates);
+
+        // a bill that missed several months is paid once and moves past today, not once per missed month
+        for (int i = 0; i < nextPaymentDates.length; i++) {
+            while (!nextPaymentDates[i].isAfter(today)) {
+                nextPaymentDates[i] = RecurringDateCalendar.nextDueDate(nextPaymentDates[i], recurringDates[i]);
+            }
+        }
+
+        Map<LocalDate, List<Long>> paidByNextDate = new TreeMap<>();
+        for (int i = 0; i < paidBills.size(); i++) {
+            Long billId = paidBills.get(i).getId();
+            paidByNextDate.computeIfAbsent(nextPaymentDates[i], date -> new ArrayList<>()).add(billId);
+            result.requeue.add(new DueBill(billId, nextPaymentDates[i]));
+        }
+        result.billsPaid = paidBills.size();
+
+        for (Map.Entry<LocalDate, List<Long>> paid : paidByNextDate.entrySet()) {
+            if (billRepository.advanceUpcomingPaymentDate(paid.getValue(), paid.getKey(), today.toString(), today) != paid.getValue().size()) {
+                throw new ConflictException("Some bills in the partition were changed during payment.");
+            }
+        }
+
+        return result;
+    }
+
+    // a bill id and its due date as an epoch day, kept small since the index holds every recurring bill
+    private static final class DueBill implements Comparable<DueBill> {
+
+        private final long billId;
+
+        private final long dueDay;
+
+        private DueBill(long billId, LocalDate dueDate) {
+            this.billId = billId;
+            this.dueDay = dueDate.toEpochDay();
+        }
+
+        @Override
+        public int compareTo(DueBill other) {
+            int byDay = Long.compare(dueDay, other.dueDay);
+            return byDay != 0 ? byDay : Long.compare(billId, other.billId);
+        }
+    }
+
+    private static final class PartitionResult {
+
+        private int billsPaid;
+
+        private final List<DueBill> requeue = new ArrayList<>();
+    }
+}
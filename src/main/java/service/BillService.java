@@ -1,13 +1,12 @@
 package service;
 
 
-import domain.Account;
 import domain.Bill;
-import domain.Customer;
+import domain.Money;
 import domain.enums.BillStatus;
 import exceptions.ConflictException;
 import exceptions.InvalidInputException;
-import exceptions.ResourceNotFoundException;
+import io.micrometer.core.annotation.Timed;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,20 +14,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import repository.AccountRepository;
 import repository.BillRepository;
-import repository.CustomerRepository;
 import successfulresponse.ApiResponse;
+import successfulresponse.ResponseMessages;
+import successfulresponse.SingleApiResponse;
 import util.BillCreationRequest;
+import util.RecurringDateCalendar;
 
-import java.time.DateTimeException;
 import java.time.LocalDate;
-import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 
 @Service
+@Timed(value = "banking.service", histogram = true)
 @Transactional
 public class BillService {
     private static final Logger logger = LoggerFactory.getLogger(BillService.class);
@@ -36,15 +34,18 @@ public class BillService {
     private BillRepository billRepository;
 
     @Autowired
-    private AccountRepository accountRepository;
+    private EntityLookup entityLookup;
 
     @Autowired
-    private CustomerRepository customerRepository;
+    private BillPaymentScheduler billPaymentScheduler;
+
+    @Autowired
+    private ConditionalGet conditionalGet;
 
 
     public ResponseEntity<?> getBillsForAnAccount(Long accountId){
 
-        verifyAccountExists(accountId);
+        entityLookup.account(accountId);
 
         List<Bill> allBills = billRepository.findByAccountId(accountId);
 
@@ -58,18 +59,20 @@ public class BillService {
 
 
 
-    public ResponseEntity<?> getABillById(Long billId){
+    public ResponseEntity<?> getABillById(Long billId, String ifNoneMatch){
 
-        verifyBillExists(billId);
-        Bill bill = billRepository.findById(billId).get();
+        ResponseEntity<?> notModified = conditionalGet.notModified(ifNoneMatch, "bill", () -> billRepository.findVersionById(billId));
+        if (notModified != null) {
+            return notModified;
+        }
 
-        List<Bill> listForResponse = new ArrayList<>();
-        listForResponse.add(bill);
-        ApiResponse<Bill> apiResponse = new ApiResponse<>(200, "Bill with Id (" + billId + ") retrieved successfully.", listForResponse);
+        Bill bill = entityLookup.bill(billId);
+
+        SingleApiResponse<Bill> apiResponse = new SingleApiResponse<>(200, ResponseMessages.BILL_RETRIEVED, bill);
 
         logger.info("Bill with Id (" + billId + ") retrieved successfully.");
 
-        return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+        return conditionalGet.withETag(new ResponseEntity<>(apiResponse, HttpStatus.OK), bill.getVersion());
 
 
         }
@@ -79,19 +82,10 @@ public class BillService {
 
     public ResponseEntity<?> getAllBillsByCustomerId(Long customerId){
 
-        verifyCustomerExists(customerId);
-
-        List<Account> listOfCustomersAccounts = accountRepository.findAllByCustomerId(customerId);
-
-        List<Bill> allOfTheBills = new ArrayList<>();
-
-        for (Account account : listOfCustomersAccounts) {
+        entityLookup.customer(customerId);
 
-            Long accountId = account.getId();
-            List<Bill> billsByAccount = billRepository.findByAccountId(accountId);
-            allOfTheBills.addAll(billsByAccount);
-
-        }
+        // one join over the customer's accounts instead of a query per account
+        List<Bill> allOfTheBills = billRepository.findAllByCustomerId(customerId);
 
         ApiResponse<Bill> apiResponse = new ApiResponse<>(200, "All Bills belonging to Customer with Id (" + customerId + ") retrieved successfully.", allOfTheBills);
         logger.info("All Bills belonging to Customer with Id (" + customerId + ") retrieved successfully.");
@@ -111,17 +105,17 @@ public class BillService {
         String payee = billCreationRequest.getPayee();
         String nickname = billCreationRequest.getNickname();
         Integer recurringDate = billCreationRequest.getRecurringDate();
-        Double paymentAmount = billCreationRequest.getPaymentAmount();
+        Money paymentAmount = billCreationRequest.getPaymentAmount();
 
         Bill bill = new Bill();
 
-        bill.setStatus(billStatus.name());
+        bill.setStatus(billStatus);
 
         bill.setPayee(payee);
         bill.setNickname(nickname);
 
         LocalDate creationDate = LocalDate.now();
-        bill.setCreationDate(LocalDate.now().toString());
+        bill.setCreationDate(creationDate);
 
         bill.setPaymentDate("Awaiting payment.");
 
@@ -129,15 +123,16 @@ public class BillService {
 
             bill.setRecurringDate(recurringDate);
 
-            LocalDate upcomingPaymentDate = calculateUpcomingPaymentDate(recurringDate, creationDate);
+            LocalDate upcomingPaymentDate = RecurringDateCalendar.nextDueDate(creationDate, recurringDate);
 
-            bill.setUpcomingPaymentDate(upcomingPaymentDate.toString());
+            bill.setUpcomingPaymentDate(upcomingPaymentDate);
         }
 
         bill.setPaymentAmount(paymentAmount);
         bill.setAccountId(accountId);
 
         bill = billRepository.save(bill);
+        billPaymentScheduler.schedule(bill.getId(), bill.getUpcomingPaymentDate());
 
         List<Bill> listForResponse = new ArrayList<>();
         listForResponse.add(bill);
@@ -155,28 +150,35 @@ public class BillService {
 
     public ResponseEntity<?> updateABill(Long billId, Bill billToUpdateWith){
 
-        verifyBillExists(billId);
-
-        verifyProperBillToUpdate(billId, billToUpdateWith);
+        Bill originalBill = entityLookup.bill(billId);
 
-        String billStatus = billToUpdateWith.getStatus();
+        verifyProperBillToUpdate(originalBill, billToUpdateWith);
 
-        if (billStatus.equals("RECURRING")){
+        // clients that do not send a version update whatever is current
+        if (billToUpdateWith.getVersion() == null){
+            billToUpdateWith.setVersion(originalBill.getVersion());
+        }
 
-            String unparsedCreationDate = billToUpdateWith.getCreationDate();
+        BillStatus billStatus = billToUpdateWith.getStatus();
 
-            LocalDate creationDate = LocalDate.parse(unparsedCreationDate);
+        if (billStatus == BillStatus.RECURRING){
 
             Integer recurringDate = billToUpdateWith.getRecurringDate();
 
-            LocalDate upcomingPaymentDate = calculateUpcomingPaymentDate(recurringDate, creationDate);
+            // never a date in the past, the runner would pay it at once; a bill that is due but unpaid stays due today
+            LocalDate today = LocalDate.now();
+            LocalDate storedPaymentDate = originalBill.getUpcomingPaymentDate();
+            LocalDate from = storedPaymentDate != null && storedPaymentDate.isAfter(today) ? storedPaymentDate : today;
+
+            LocalDate upcomingPaymentDate = RecurringDateCalendar.dueDateOnOrAfter(from, recurringDate);
 
-            billToUpdateWith.setUpcomingPaymentDate(upcomingPaymentDate.toString());
+            billToUpdateWith.setUpcomingPaymentDate(upcomingPaymentDate);
         }
 
-        if (billStatus.equals("CANCELED")){
+        if (billStatus == BillStatus.CANCELLED){
 
-            billToUpdateWith.setUpcomingPaymentDate("Cancelled Bill. No upcoming payment.");
+            // a cancelled bill has no upcoming payment
+            billToUpdateWith.setUpcomingPaymentDate(null);
 
             if (!billToUpdateWith.getPaymentDate().equals("Awaiting payment.")){
                 billToUpdateWith.setPaymentDate("Canceled bill. Already payed and requires refund.");
@@ -187,6 +189,9 @@ public class BillService {
 
 
         billRepository.save(billToUpdateWith);
+        if (billStatus == BillStatus.RECURRING){
+            billPaymentScheduler.schedule(billId, billToUpdateWith.getUpcomingPaymentDate());
+        }
 
         List<Bill> listForResponse = new ArrayList<>();
         listForResponse.add(billToUpdateWith);
@@ -205,9 +210,10 @@ public class BillService {
 
     public ResponseEntity<?> deleteABill(Long billId){
 
-        verifyBillExists(billId);
+        Bill bill = entityLookup.bill(billId);
 
-        billRepository.deleteById(billId);
+        billRepository.delete(bill);
+        entityLookup.forget(Bill.class, billId);
 
         logger.info("Bill with Id (" + billId + ") deleted successfully.");
 
@@ -216,36 +222,9 @@ public class BillService {
 
 
 
-    private void verifyAccountExists(Long accountId){
-
-        Optional<Account> account = accountRepository.findById(accountId);
-
-        if(account.isEmpty()){
-            throw new ResourceNotFoundException("Account with Id (" + accountId + ") not found.");
-        }
-    }
-
-    private void verifyBillExists(Long billId) {
-        Optional<Bill> deposit = billRepository.findById(billId);
-
-        if(deposit.isEmpty()){
-            throw new ResourceNotFoundException("Bill with Id (" + billId + ") not found.");
-        }
-
-    }
-
-    private void verifyCustomerExists(Long customerId) {
-
-        Optional<Customer> customer = customerRepository.findById(customerId);
-
-        if(customer.isEmpty()){
-            throw new ResourceNotFoundException("Customer with Id (" + customerId + ") not found.");
-        }
-    }
-
     private void verifyProperBillCreationParams(Long accountId, BillCreationRequest billCreationRequest) {
 
-        verifyAccountExists(accountId);
+        entityLookup.account(accountId);
 
         BillStatus billStatus = billCreationRequest.getBillStatus();
         verifyProperBillStatus(billStatus);
@@ -267,15 +246,15 @@ public class BillService {
         }
     }
 
-    private void verifyProperBillToUpdate(Long billId, Bill billToUpdateWith){
+    private void verifyProperBillToUpdate(Bill originalBill, Bill billToUpdateWith){
 
-        Bill originalBill = billRepository.findById(billId).get();
+        Long billId = originalBill.getId();
 
         if (!billId.equals(billToUpdateWith.getId())){
             throw new ConflictException("Updated billId must match previous billId.");
         }
 
-        if (!originalBill.getStatus().equals("PENDING") && !originalBill.getStatus().equals("RECURRING")){
+        if (originalBill.getStatus() != BillStatus.PENDING && originalBill.getStatus() != BillStatus.RECURRING){
             throw new InvalidInputException("Can not update bill with status (" + billToUpdateWith.getStatus() + ").");
         }
 
@@ -295,11 +274,11 @@ public class BillService {
             throw new ConflictException("Updated payment date must match previous bill payment date.");
         }
 
-        if (billToUpdateWith.getStatus().equals("RECURRING") && billToUpdateWith.getRecurringDate() == null){
+        if (billToUpdateWith.getStatus() == BillStatus.RECURRING && billToUpdateWith.getRecurringDate() == null){
             throw new InvalidInputException("Can not update bill to recurring without specified recurring date.");
         }
 
-        if (billToUpdateWith.getStatus().equals("CANCELED") || billToUpdateWith.getStatus().equals("COMPLETED") && billToUpdateWith.getUpcomingPaymentDate() != null){
+        if ((billToUpdateWith.getStatus() == BillStatus.CANCELLED || billToUpdateWith.getStatus() == BillStatus.COMPLETED) && billToUpdateWith.getUpcomingPaymentDate() != null){
             logger.warn("Status for updated bill is either cancelled or completed, and upcoming payment date is not null.\n This field should be left null for this action, and will be overwritten by the system.");
         }
 
@@ -307,19 +286,4 @@ public class BillService {
             logger.warn("Reccurring date is different in updated bill compared to original, and upcoming payment date is not null.\n This field should be left null for this action, and will be overwritten by the system.");
         }
     }
-
-    private LocalDate calculateUpcomingPaymentDate(Integer recurringDate, LocalDate creationDate){
-
-        LocalDate upcomingPaymentDate = LocalDate.parse("0000-01-01");
-
-        try {
-            upcomingPaymentDate = YearMonth.from(creationDate).plusMonths(1).atDay(recurringDate);
-        } catch (DateTimeException e){
-            calculateUpcomingPaymentDate(recurringDate - 1, creationDate);
-        }
-
-        return upcomingPaymentDate;
-    }
 }
-
-
@@ -0,0 +1,64 @@
+package service;
+
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.util.function.Supplier;
+
+// Strong ETags built from entity versions. A GET whose If-None-Match still matches is answered with 304
+// after a version-only query, the entity is neither loaded nor serialized for it.
+@Service
+public class ConditionalGet {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+
+    public static String eTag(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    // the 304 response if the client's copy is current, null when the full response has to be built
+    public ResponseEntity<?> notModified(String ifNoneMatch, String resource, Supplier<Long> currentVersion) {
+
+        if (ifNoneMatch == null) {
+            return null;
+        }
+
+        // a missing entity has no version, the full path then answers 404
+        Long version = currentVersion.get();
+        if (version == null || !matches(ifNoneMatch, eTag(version))) {
+            return null;
+        }
+
+        meterRegistry.counter("banking.http.not_modified", "resource", resource).increment();
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag(version)).build();
+    }
+
+    public <T> ResponseEntity<T> withETag(ResponseEntity<T> response, Long version) {
+
+        if (version == null) {
+            return response;
+        }
+        return ResponseEntity.status(response.getStatusCode()).headers(response.getHeaders()).eTag(eTag(version)).body(response.getBody());
+    }
+
+    // If-None-Match uses the weak comparison, so W/"3" matches "3"
+    private static boolean matches(String ifNoneMatch, String eTag) {
+
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
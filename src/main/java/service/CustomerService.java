@@ -5,28 +5,40 @@ import domain.Account;
 import domain.Customer;
 import exceptions.InvalidInputException;
 import exceptions.ResourceNotFoundException;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import repository.AccountRepository;
 import repository.CustomerRepository;
 import successfulresponse.ApiResponse;
+import successfulresponse.ResponseMessages;
+import successfulresponse.SingleApiResponse;
 
 
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Optional;
 
 @Service
+@Timed(value = "banking.service", histogram = true)
 public class CustomerService {
 
     @Autowired
     private CustomerRepository customerRepository;
 
     @Autowired
-    private AccountRepository accountRepository;
+    private EntityLookup entityLookup;
+
+    @Autowired
+    private ConditionalGet conditionalGet;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
 
     public ResponseEntity<?> getAllCustomers() {
@@ -44,32 +56,33 @@ public class CustomerService {
         return new ResponseEntity<>(successfulResponse, HttpStatus.OK);
     }
 
-    public ResponseEntity<?> getCustomerById(Long customerId) {
-        verifyCustomerExists(customerId);
-        ApiResponse<Customer> successfulResponse = new ApiResponse<>();
-        successfulResponse.setCode(HttpStatus.OK.value());
-        successfulResponse.setMessage("Success");
-        Optional<Customer> customer = customerRepository.findById(customerId);
-        if (customer.isEmpty()) {
-            throw new ResourceNotFoundException("Customer with id " + customerId + " not found");
+    public ResponseEntity<?> getCustomerById(Long customerId, String ifNoneMatch) {
+        ResponseEntity<?> notModified = conditionalGet.notModified(ifNoneMatch, "customer", () -> customerRepository.findVersionById(customerId));
+        if (notModified != null) {
+            return notModified;
         }
-
-        List<Customer> listOfCustomers = new ArrayList<>();
-        customer.ifPresent(listOfCustomers::add);
-        successfulResponse.setData(listOfCustomers);
-        return new ResponseEntity<>(successfulResponse, HttpStatus.OK);
+        Customer customer = entityLookup.customer(customerId);
+        SingleApiResponse<Customer> successfulResponse = new SingleApiResponse<>(HttpStatus.OK.value(), ResponseMessages.CUSTOMER_RETRIEVED, customer);
+        return conditionalGet.withETag(new ResponseEntity<>(successfulResponse, HttpStatus.OK), customer.getVersion());
     }
 
+    @Transactional
     public ResponseEntity<?> updateCustomer(Long id, Customer customer) {
-        verifyCustomerExists(id);
+        Customer existingCustomer = entityLookup.customer(id);
         if (!id.equals(customer.getId())) {
             throw new ResourceNotFoundException("Customer with id " + id + " does not exist");
         }
         if (customer == null) {
             throw new InvalidInputException("Customer object cannot be null");
         }
+        // clients that do not send a version update whatever is current
+        if (customer.getVersion() == null) {
+            customer.setVersion(existingCustomer.getVersion());
+        }
 
         customer = customerRepository.save(customer);
+        // address edits alone do not dirty the customer row, the version still has to move for the ETag
+        entityManager.lock(customer, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
         ApiResponse<Customer> successfulResponse = new ApiResponse<>();
         successfulResponse.setCode(HttpStatus.OK.value());
         successfulResponse.setMessage("Success");
@@ -96,33 +109,18 @@ public class CustomerService {
     }
 
     public ResponseEntity<?> getCustomerByAccountId(Long accountId) {
-        verifyAccountExists(accountId);
+        Account account = entityLookup.account(accountId);
         ApiResponse<Customer> successfulResponse = new ApiResponse<>();
         successfulResponse.setCode(HttpStatus.OK.value());
         successfulResponse.setMessage("Success");
 
-        Account account = accountRepository.findById(accountId).get();
-
         Long customerId = account.getCustomerId();
-        verifyCustomerExists(customerId);
-        Customer customer = customerRepository.findById(customerId).get();
+        Customer customer = entityLookup.customer(customerId);
 
         List<Customer> listOfCustomers = new ArrayList<>();
         listOfCustomers.add(customer);
         successfulResponse.setData(listOfCustomers);
         return new ResponseEntity<>(successfulResponse, HttpStatus.OK);
     }
-
-    private void verifyCustomerExists(Long id) {
-        if (!customerRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Customer with id " + id + " not found");
-        }
-    }
-
-    private void verifyAccountExists(Long id) {
-        if (!accountRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Account with id " + id + " not found");
-        }
-    }
 }
 
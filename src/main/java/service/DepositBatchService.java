@@ -0,0 +1,259 @@
+package service;
+
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import domain.Deposit;
+import domain.enums.DepositStatus;
+import domain.enums.Medium;
+import domain.enums.TransactionType;
+import exceptions.InvalidInputException;
+import exceptions.ResourceNotFoundException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import repository.AccountRepository;
+import repository.DepositRepository;
+import successfulresponse.ApiResponse;
+import util.DepositBatchItemResult;
+import util.DepositCreationRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+@Service
+public class DepositBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(DepositBatchService.class);
+
+    @Autowired
+    private DepositRepository depositRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${banking.deposits.batch.chunk-size:1000}")
+    private int chunkSize;
+
+
+    public ResponseEntity<?> createDeposits(Long accountId, List<DepositCreationRequest> depositCreationRequests) {
+
+        if (depositCreationRequests == null || depositCreationRequests.isEmpty()) {
+            throw new InvalidInputException("Deposit batch must contain at least one deposit request.");
+        }
+
+        // the whole array is known up front, so every referenced account is checked in one query
+        Set<Long> existingAccountIds = new HashSet<>();
+        Set<Long> checkedAccountIds = new HashSet<>();
+        resolveAccounts(accountId, depositCreationRequests, existingAccountIds, checkedAccountIds);
+
+        return createDeposits(accountId, depositCreationRequests.iterator(), existingAccountIds, checkedAccountIds);
+    }
+
+    public ResponseEntity<?> createDeposits(Long accountId, InputStream ndjsonRequests) throws IOException {
+
+        // NDJSON is read one line at a time and every chunk is cleared from the persistence context once it is saved,
+        // so only the current chunk's requests and deposits are held in memory, plus one result per line for the response
+        try (MappingIterator<DepositCreationRequest> depositCreationRequests = objectMapper.readerFor(DepositCreationRequest.class).readValues(ndjsonRequests)) {
+            return createDeposits(accountId, depositCreationRequests, new HashSet<>(), new HashSet<>());
+        }
+    }
+
+    private ResponseEntity<?> createDeposits(Long accountId, Iterator<DepositCreationRequest> depositCreationRequests, Set<Long> existingAccountIds, Set<Long> checkedAccountIds) {
+
+        // validate that the paying account exists before touching any item
+        if (!checkedAccountIds.contains(accountId)) {
+            resolveAccounts(accountId, List.of(), existingAccountIds, checkedAccountIds);
+        }
+        if (!existingAccountIds.contains(accountId)) {
+            throw new ResourceNotFoundException("Account with Id (" + accountId + ") not found.");
+        }
+
+        List<DepositBatchItemResult> results = new ArrayList<>();
+        List<DepositCreationRequest> chunk = new ArrayList<>(chunkSize);
+        int createdCount = 0;
+        int index = 0;
+
+        while (depositCreationRequests.hasNext()) {
+            chunk.add(depositCreationRequests.next());
+
+            if (chunk.size() == chunkSize || !depositCreationRequests.hasNext()) {
+                createdCount += createChunk(accountId, index, chunk, existingAccountIds, checkedAccountIds, results);
+                index += chunk.size();
+                chunk.clear();
+            }
+        }
+
+        if (results.isEmpty()) {
+            throw new InvalidInputException("Deposit batch must contain at least one deposit request.");
+        }
+
+        HttpStatus status = createdCount == results.size() ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS;
+        String message = "Processed " + results.size() + " deposit requests: " + createdCount + " created, " + (results.size() - createdCount) + " rejected.";
+
+        ApiResponse<DepositBatchItemResult> apiResponse = new ApiResponse<>(status.value(), message, results);
+
+        log.info("Deposit batch for accountId (" + accountId + "): " + message);
+
+        return new ResponseEntity<>(apiResponse, status);
+    }
+
+    private int createChunk(Long accountId, int firstIndex, List<DepositCreationRequest> chunk, Set<Long> existingAccountIds, Set<Long> checkedAccountIds, List<DepositBatchItemResult> results) {
+
+        // one lookup for any payees in this chunk that have not been seen yet
+        resolveAccounts(accountId, chunk, existingAccountIds, checkedAccountIds);
+
+        List<Deposit> deposits = new ArrayList<>(chunk.size());
+        List<DepositBatchItemResult> pending = new ArrayList<>(chunk.size());
+
+        for (int i = 0; i < chunk.size(); i++) {
+            DepositCreationRequest depositCreationRequest = chunk.get(i);
+            int index = firstIndex + i;
+
+            DepositBatchItemResult rejection = validate(index, depositCreationRequest, existingAccountIds);
+            if (rejection != null) {
+                results.add(rejection);
+                continue;
+            }
+
+            deposits.add(buildDeposit(accountId, depositCreationRequest));
+            DepositBatchItemResult result = new DepositBatchItemResult(index, HttpStatus.CREATED.value(), "Created deposit and added it to the account.", null);
+            pending.add(result);
+            results.add(result);
+        }
+
+        if (deposits.isEmpty()) {
+            return 0;
+        }
+
+        // one transaction per chunk, the inserts go out as JDBC batches; a failed commit surfaces as a TransactionException.
+        // With open-in-view every chunk joins the request's EntityManager, so its deposits are detached afterwards
+        // instead of staying managed (and dirty checked on every later flush) until the request ends
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> depositRepository.saveAll(deposits));
+        } catch (DataAccessException | TransactionException e) {
+            log.error("Deposit batch chunk starting at index (" + firstIndex + ") failed: " + e.getMessage());
+            for (DepositBatchItemResult result : pending) {
+                result.setCode(HttpStatus.INTERNAL_SERVER_ERROR.value());
+                result.setMessage("Deposit could not be saved.");
+            }
+            return 0;
+        } finally {
+            entityManager.clear();
+        }
+
+        for (int i = 0; i < pending.size(); i++) {
+            pending.get(i).setDepositId(deposits.get(i).getDepositId());
+        }
+
+        return deposits.size();
+    }
+
+    private void resolveAccounts(Long accountId, List<DepositCreationRequest> depositCreationRequests, Set<Long> existingAccountIds, Set<Long> checkedAccountIds) {
+
+        Set<Long> unchecked = new HashSet<>();
+        if (!checkedAccountIds.contains(accountId)) {
+            unchecked.add(accountId);
+        }
+        for (DepositCreationRequest depositCreationRequest : depositCreationRequests) {
+            Long payeeId = depositCreationRequest == null ? null : depositCreationRequest.getPayeeId();
+            if (payeeId != null && !checkedAccountIds.contains(payeeId)) {
+                unchecked.add(payeeId);
+            }
+        }
+
+        if (unchecked.isEmpty()) {
+            return;
+        }
+
+        existingAccountIds.addAll(accountRepository.findExistingIds(unchecked));
+        checkedAccountIds.addAll(unchecked);
+    }
+
+    // returns the rejection for the request, or null if it can be created
+    private DepositBatchItemResult validate(int index, DepositCreationRequest depositCreationRequest, Set<Long> existingAccountIds) {
+
+        if (depositCreationRequest == null) {
+            return reject(index, HttpStatus.BAD_REQUEST, "Deposit request can not be null.");
+        }
+
+        Set<ConstraintViolation<DepositCreationRequest>> violations = validator.validate(depositCreationRequest);
+        if (!violations.isEmpty()) {
+            ConstraintViolation<DepositCreationRequest> violation = violations.iterator().next();
+            return reject(index, HttpStatus.BAD_REQUEST, "Invalid " + violation.getPropertyPath() + ": " + violation.getMessage() + ".");
+        }
+
+        TransactionType depositType = depositCreationRequest.getDepositType();
+        if (depositType.equals(TransactionType.WITHDRAWAL)) {
+            return reject(index, HttpStatus.BAD_REQUEST, "Transaction type (" + depositType.name() + ") is not valid for this operation.");
+        }
+
+        if (depositType.equals(TransactionType.P2P)) {
+            Long payeeId = depositCreationRequest.getPayeeId();
+            if (payeeId == null) {
+                return reject(index, HttpStatus.BAD_REQUEST, "Payee id is required for transaction type (" + depositType.name() + ").");
+            }
+            if (depositCreationRequest.getDepositMedium().equals(Medium.REWARDS)) {
+                return reject(index, HttpStatus.BAD_REQUEST, "Medium type (" + Medium.REWARDS.name() + ") is not valid for this operation.");
+            }
+            if (!existingAccountIds.contains(payeeId)) {
+                return reject(index, HttpStatus.NOT_FOUND, "Account with Id (" + payeeId + ") not found.");
+            }
+        }
+
+        return null;
+    }
+
+    private DepositBatchItemResult reject(int index, HttpStatus status, String message) {
+        return new DepositBatchItemResult(index, status.value(), message, null);
+    }
+
+    private Deposit buildDeposit(Long accountId, DepositCreationRequest depositCreationRequest) {
+
+        boolean p2p = depositCreationRequest.getDepositType().equals(TransactionType.P2P);
+        String depositDescription = depositCreationRequest.getDepositDescription();
+
+        Deposit deposit = new Deposit();
+        deposit.setType(p2p ? TransactionType.P2P : TransactionType.DEPOSIT);
+        deposit.setTransactionDate(LocalDate.now());
+        deposit.setStatus(DepositStatus.PENDING);
+        deposit.setMedium(depositCreationRequest.getDepositMedium());
+        deposit.setAmount(depositCreationRequest.getDepositAmount());
+        deposit.setDescription(depositDescription == null ? "No description given" : depositDescription);
+        deposit.setAccountId(accountId);
+        if (p2p) {
+            deposit.setPayee_id(depositCreationRequest.getPayeeId());
+        }
+        return deposit;
+    }
+}
@@ -0,0 +1,281 @@
+package service;
+
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import domain.Deposit;
+import domain.enums.DepositStatus;
+import domain.enums.ProcessingState;
+import exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import repository.DepositRepository;
+import successfulresponse.ApiResponse;
+import util.DepositProcessingStatus;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Async mode of PUT /deposits/process/{depositId}: the request only validates and enqueues the deposit and gets 202,
+// worker threads settle it through DepositService. Each paying account maps to one worker queue, so a worker can
+// settle all queued deposits of an account in a single transfer transaction.
+@Service
+public class DepositProcessingQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(DepositProcessingQueue.class);
+
+    @Autowired
+    private DepositService depositService;
+
+    @Autowired
+    private DepositRepository depositRepository;
+
+    @Autowired
+    private EntityLookup entityLookup;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // shared by all worker queues
+    @Value("${banking.deposits.async.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${banking.deposits.async.workers:4}")
+    private int workers;
+
+    // most deposits a worker takes off its queue at once
+    @Value("${banking.deposits.async.batch-size:100}")
+    private int batchSize;
+
+    @Value("${banking.deposits.async.status-retention:1h}")
+    private Duration statusRetention;
+
+    private final List<BlockingQueue<QueuedDeposit>> queues = new ArrayList<>();
+
+    private Cache<Long, DepositProcessingStatus> statuses;
+
+    private ExecutorService workerPool;
+
+    private Counter rejected;
+    private Timer queueWait;
+    private Timer processing;
+
+
+    @PostConstruct
+    public void startWorkers() {
+
+        statuses = Caffeine.newBuilder().maximumSize(queueCapacity * 10L).expireAfterWrite(statusRetention).build();
+
+        int perWorkerCapacity = Math.max(1, queueCapacity / workers);
+        workerPool = Executors.newFixedThreadPool(workers, new CustomizableThreadFactory("deposit-processing-worker-"));
+        for (int i = 0; i < workers; i++) {
+            BlockingQueue<QueuedDeposit> queue = new ArrayBlockingQueue<>(perWorkerCapacity);
+            queues.add(queue);
+            workerPool.execute(() -> drain(queue));
+        }
+
+        Gauge.builder("banking.deposits.queue.depth", queues, DepositProcessingQueue::depth)
+                .description("Deposits waiting for an async processing worker").register(meterRegistry);
+        rejected = Counter.builder("banking.deposits.queue.rejected")
+                .description("Async deposit requests turned away because the queue was full").register(meterRegistry);
+        queueWait = Timer.builder("banking.deposits.queue.wait")
+                .description("Time a deposit spent in the queue before a worker took it").register(meterRegistry);
+        processing = Timer.builder("banking.deposits.processing")
+                .description("Time spent settling one account's queued deposits").register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stopWorkers() {
+        // queued deposits stay pending and can be processed again after a restart
+        workerPool.shutdownNow();
+    }
+
+    public ResponseEntity<?> enqueue(Long depositId) {
+
+        Deposit deposit = entityLookup.deposit(depositId);
+        depositService.verifyDepositIsPending(deposit);
+
+        DepositProcessingStatus queued = new DepositProcessingStatus(depositId, ProcessingState.QUEUED, null);
+        DepositProcessingStatus current = statuses.asMap().compute(depositId, (id, existing) ->
+                existing != null && (existing.getState() == ProcessingState.QUEUED || existing.getState() == ProcessingState.PROCESSING) ? existing : queued);
+
+        // a deposit that is already waiting or being processed is not queued twice
+        if (current == queued) {
+            BlockingQueue<QueuedDeposit> queue = queues.get(Math.floorMod(deposit.getAccountId(), workers));
+            if (!queue.offer(new QueuedDeposit(depositId, System.nanoTime()))) {
+                statuses.invalidate(depositId);
+                rejected.increment();
+                throw new ServiceUnavailableException("Deposit processing queue is full, please retry later.");
+            }
+        }
+
+        List<DepositProcessingStatus> listForResponse = new ArrayList<>();
+        listForResponse.add(current);
+
+        ApiResponse<DepositProcessingStatus> apiResponse = new ApiResponse<>(202, "Deposit with Id (" + depositId + ") queued for processing.", listForResponse);
+
+        log.info("Deposit with Id (" + depositId + ") queued for processing.");
+
+        return ResponseEntity.accepted().location(URI.create(statusPath(depositId))).body(apiResponse);
+    }
+
+    public ResponseEntity<?> getStatus(Long depositId) {
+
+        DepositProcessingStatus status = statuses.getIfPresent(depositId);
+
+        // not queued recently, the deposit itself still says whether it was processed
+        if (status == null) {
+            Deposit deposit = entityLookup.deposit(depositId);
+            status = deposit.getStatus() == DepositStatus.COMPLETED
+                    ? new DepositProcessingStatus(depositId, ProcessingState.COMPLETED, null)
+                    : new DepositProcessingStatus(depositId, null, "Deposit has status (" + deposit.getStatus() + ") and is not queued.");
+        }
+
+        List<DepositProcessingStatus> listForResponse = new ArrayList<>();
+        listForResponse.add(status);
+
+        ApiResponse<DepositProcessingStatus> apiResponse = new ApiResponse<>(200, "Processing status of deposit with Id (" + depositId + ") retrieved successfully.", listForResponse);
+
+        return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+    }
+
+    public static String statusPath(Long depositId) {
+        return "/deposits/process/" + depositId + "/status";
+    }
+
+    private void drain(BlockingQueue<QueuedDeposit> queue) {
+
+        List<QueuedDeposit> batch = new ArrayList<>(batchSize);
+
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(batch, batchSize - 1);
+
+            try {
+                processBatch(batch);
+            } catch (RuntimeException e) {
+                // keep the worker alive, the deposits of this batch are still pending
+                log.error("Async deposit processing batch of " + batch.size() + " deposits failed: " + e.getMessage());
+                for (QueuedDeposit queued : batch) {
+                    fail(queued.depositId, "Processing failed, please retry.");
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private void processBatch(List<QueuedDeposit> batch) {
+
+        long now = System.nanoTime();
+        List<Long> depositIds = new ArrayList<>(batch.size());
+        for (QueuedDeposit queued : batch) {
+            queueWait.record(now - queued.enqueuedAtNanos, TimeUnit.NANOSECONDS);
+            depositIds.add(queued.depositId);
+            statuses.put(queued.depositId, new DepositProcessingStatus(queued.depositId, ProcessingState.PROCESSING, null));
+        }
+
+        // read the deposits again, they may have been processed, changed or deleted while queued
+        Map<Long, Deposit> deposits = new HashMap<>();
+        for (Deposit deposit : depositRepository.findAllById(depositIds)) {
+            deposits.put(deposit.getDepositId(), deposit);
+        }
+
+        // queue order within each paying account
+        Map<Long, List<Deposit>> depositsByAccount = new LinkedHashMap<>();
+        for (Long depositId : depositIds) {
+            Deposit deposit = deposits.get(depositId);
+            if (deposit == null) {
+                fail(depositId, "Deposit with Id (" + depositId + ") not found.");
+            } else if (deposit.getStatus() == DepositStatus.COMPLETED) {
+                statuses.put(depositId, new DepositProcessingStatus(depositId, ProcessingState.COMPLETED, null));
+            } else if (deposit.getStatus() != DepositStatus.PENDING) {
+                fail(depositId, "Deposit status of (" + deposit.getStatus() + ") is not valid for processing.");
+            } else {
+                depositsByAccount.computeIfAbsent(deposit.getAccountId(), accountId -> new ArrayList<>()).add(deposit);
+            }
+        }
+
+        for (List<Deposit> accountDeposits : depositsByAccount.values()) {
+            processing.record(() -> processAccountDeposits(accountDeposits));
+        }
+    }
+
+    private void processAccountDeposits(List<Deposit> accountDeposits) {
+
+        try {
+            depositService.processDeposits(accountDeposits);
+            for (Deposit deposit : accountDeposits) {
+                statuses.put(deposit.getDepositId(), new DepositProcessingStatus(deposit.getDepositId(), ProcessingState.COMPLETED, null));
+            }
+            return;
+        } catch (RuntimeException e) {
+            if (accountDeposits.size() == 1) {
+                fail(accountDeposits.get(0).getDepositId(), e.getMessage());
+                return;
+            }
+        }
+
+        // one deposit failed and rolled the whole group back, settle them one by one so only that one fails
+        for (Deposit deposit : accountDeposits) {
+            try {
+                depositService.processDeposits(List.of(deposit));
+                statuses.put(deposit.getDepositId(), new DepositProcessingStatus(deposit.getDepositId(), ProcessingState.COMPLETED, null));
+            } catch (RuntimeException e) {
+                fail(deposit.getDepositId(), e.getMessage());
+            }
+        }
+    }
+
+    private void fail(Long depositId, String message) {
+        statuses.put(depositId, new DepositProcessingStatus(depositId, ProcessingState.FAILED, message));
+    }
+
+    private static double depth(List<BlockingQueue<QueuedDeposit>> queues) {
+
+        int depth = 0;
+        for (BlockingQueue<QueuedDeposit> queue : queues) {
+            depth += queue.size();
+        }
+        return depth;
+    }
+
+
+    private static final class QueuedDeposit {
+
+        private final Long depositId;
+
+        private final long enqueuedAtNanos;
+
+        private QueuedDeposit(Long depositId, long enqueuedAtNanos) {
+            this.depositId = depositId;
+            this.enqueuedAtNanos = enqueuedAtNanos;
+        }
+    }
+}
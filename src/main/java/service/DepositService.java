@@ -1,11 +1,13 @@
 package service;
 
 
-import domain.Account;
 import domain.Deposit;
+import domain.Money;
+import domain.enums.DepositStatus;
 import domain.enums.Medium;
 import domain.enums.TransactionType;
 import exceptions.*;
+import io.micrometer.core.annotation.Timed;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Null;
@@ -19,14 +21,21 @@ import org.springframework.validation.annotation.Validated;
 import repository.AccountRepository;
 import repository.DepositRepository;
 import successfulresponse.ApiResponse;
+import successfulresponse.PagedApiResponse;
+import successfulresponse.ResponseMessages;
+import successfulresponse.SingleApiResponse;
 import util.DepositCreationRequest;
+import util.PageLimits;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.TreeMap;
 
 @Service
+@Timed(value = "banking.service", histogram = true)
 @Validated
 public class DepositService {
 
@@ -38,20 +47,41 @@ public class DepositService {
     @Autowired
     private AccountRepository accountRepository;
 
-    public ResponseEntity<?> getAllDepositsByAccount(Long accountId){
+    @Autowired
+    private AccountBalanceLedger accountBalanceLedger;
+
+    @Autowired
+    private TransferExecutor transferExecutor;
+
+    @Autowired
+    private EntityLookup entityLookup;
+
+    @Autowired
+    private ConditionalGet conditionalGet;
+
+    public ResponseEntity<?> getAllDepositsByAccount(Long accountId, Integer limit, Long after, LocalDate from, LocalDate to, DepositStatus status,
+                                                     Medium medium, TransactionType type, BigDecimal minAmount, BigDecimal maxAmount){
 
         // verify account exists
-        verifyAccountExists(accountId);
+        entityLookup.account(accountId);
 
-        // run method that gets all deposits by accountId and store it in an object
-        Iterable<Deposit> allDeposits = depositRepository.findAllByAccountId(accountId);
+        int pageLimit = PageLimits.resolve(limit);
+        verifyRange("Date", from, to);
+        verifyRange("Amount", minAmount, maxAmount);
 
-        // generate a Successful response object and store relevant data in it
-        List<Deposit> listForResponse = new ArrayList<>();
+        // fetch one extra row to know whether there is a next page
+        List<Deposit> listForResponse = depositRepository.findPageByAccountId(accountId, PageLimits.resolveCursor(after), from, to,
+                status == null ? null : status.name(), medium == null ? null : medium.name(), type == null ? null : type.name(),
+                toMinorUnits(minAmount), toMinorUnits(maxAmount), pageLimit + 1);
 
-        allDeposits.forEach(listForResponse::add);
+        Long nextCursor = null;
+        if (listForResponse.size() > pageLimit) {
+            listForResponse = listForResponse.subList(0, pageLimit);
+            nextCursor = listForResponse.get(pageLimit - 1).getDepositId();
+        }
 
-        ApiResponse<Deposit> apiResponse = new ApiResponse<>(200, "All deposits with accountId (" + accountId + ") retrieved successfully.", listForResponse);
+        // generate a Successful response object and store relevant data in it
+        PagedApiResponse<Deposit> apiResponse = new PagedApiResponse<>(200, "All deposits with accountId (" + accountId + ") retrieved successfully.", listForResponse, nextCursor);
 
         // log
 
@@ -62,20 +92,20 @@ public class DepositService {
 
     }
 
-    public ResponseEntity<?> getADepositById(Long depositId) {
+    public ResponseEntity<?> getADepositById(Long depositId, String ifNoneMatch) {
 
-        // validate that deposit exists
-        verifyDepositExists(depositId);
+        // answer from the version alone if the client's copy is current
+        ResponseEntity<?> notModified = conditionalGet.notModified(ifNoneMatch, "deposit", () -> depositRepository.findVersionById(depositId));
+        if (notModified != null) {
+            return notModified;
+        }
 
-        // write code that returns the deposit
-        Optional<Deposit> depositOptional = depositRepository.findById(depositId);
+        // validate that deposit exists and get it
+        Deposit deposit = entityLookup.deposit(depositId);
 
 
         // generate a successful response object and store relevant data in it
-        List<Deposit> listForResponse = new ArrayList<>();
-        Deposit deposit = depositOptional.get();
-        listForResponse.add(deposit);
-        ApiResponse<Deposit> apiResponse = new ApiResponse<>(200, listForResponse);
+        SingleApiResponse<Deposit> apiResponse = new SingleApiResponse<>(200, ResponseMessages.DEPOSIT_RETRIEVED, deposit);
 
 
         // log
@@ -83,7 +113,7 @@ public class DepositService {
 
 
         // populate the response entity
-        return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+        return conditionalGet.withETag(new ResponseEntity<>(apiResponse, HttpStatus.OK), deposit.getVersion());
     }
 
     public ResponseEntity<?> startCreateDepositProcess(Long accountId, DepositCreationRequest depositCreationRequest) {
@@ -92,7 +122,7 @@ public class DepositService {
         TransactionType depositType = depositCreationRequest.getDepositType();
         Long payeeId = depositCreationRequest.getPayeeId();
         Medium depositMedium = depositCreationRequest.getDepositMedium();
-        Double depositAmount = depositCreationRequest.getDepositAmount();
+        Money depositAmount = depositCreationRequest.getDepositAmount();
         String depositDescription = depositCreationRequest.getDepositDescription();
 
 
@@ -105,9 +135,8 @@ public class DepositService {
         // validate that medium is not withdraw
         verifyNotWithdraw(depositType);
 
-        // validate that account exists and if so generate the Account object
-        verifyAccountExists(accountId);
-        Account account = accountRepository.findById(accountId).get();
+        // validate that account exists
+        entityLookup.account(accountId);
 
         // check deposit type
         // if deposit type = deposit
@@ -125,17 +154,19 @@ public class DepositService {
 
     public ResponseEntity<?> updateADeposit(Long depositId, @Valid Deposit depositToUpdateWith) {
 
-        // validate that depositId still exists
-        verifyDepositExists(depositId);
-
-        // get old deposit
-        Deposit oldDeposit = depositRepository.findById(depositId).get();
+        // validate that depositId still exists and get old deposit
+        Deposit oldDeposit = entityLookup.deposit(depositId);
 
         // validate new deposit
         verifyUpdateDeposit(oldDeposit, depositToUpdateWith);
 
+        // clients that do not send a version update whatever is current
+        if (depositToUpdateWith.getVersion() == null){
+            depositToUpdateWith.setVersion(oldDeposit.getVersion());
+        }
+
         // update timestamp
-        depositToUpdateWith.setTransactionDate(LocalDate.now().toString());
+        depositToUpdateWith.setTransactionDate(LocalDate.now());
 
         // if new depositToUpdate.depositDescription == null set default
         if (depositToUpdateWith.getDescription() == null){
@@ -160,8 +191,9 @@ public class DepositService {
     public ResponseEntity<?> deleteADeposit(Long depositId) {
 
         // delete deposit logic
-        verifyDepositExists(depositId);
-        depositRepository.deleteById(depositId);
+        Deposit deposit = entityLookup.deposit(depositId);
+        depositRepository.delete(deposit);
+        entityLookup.forget(Deposit.class, depositId);
 
         // log
         log.info("Deposit with Id (" + depositId + ") deleted successfully.");
@@ -171,26 +203,6 @@ public class DepositService {
 
     // Verify Methods
 
-    public void verifyDepositExists(Long depositId){
-
-        // validation logic
-        Optional<Deposit> deposit = depositRepository.findById(depositId);
-        if(deposit.isEmpty()){
-            throw new ResourceNotFoundException("Deposit with Id (" + depositId + ") not found.");
-        }
-
-    }
-
-    public void verifyAccountExists(Long accountId){
-
-        // validation logic
-        Optional<Account> account = accountRepository.findById(accountId);
-        if(account.isEmpty()){
-            throw new ResourceNotFoundException("Account with Id (" + accountId + ") not found.");
-        }
-
-    }
-
     public void verifyNotWithdraw(TransactionType transactionType){
 
         // throw TransactionMismatchException or something
@@ -201,16 +213,14 @@ public class DepositService {
 
     }
 
-    public void verifySufficientFunds(Long accountId, Double depositAmount){
+    public void verifySufficientFunds(Long accountId, Money depositAmount){
 
         // get account balance
-        Optional<Account> accountOptional = accountRepository.findById(accountId);
-        Account account = accountOptional.get();
-        Double accountBalance = account.getBalance();
+        Money accountBalance = accountBalanceLedger.availableBalance(entityLookup.account(accountId));
 
         // check for sufficient funds
 
-        if (accountBalance < depositAmount){
+        if (accountBalance.isLessThan(depositAmount)){
             throw new InsufficientFundsException("Insufficient funds in account for deposit transaction of ($" + depositAmount + "). Current account balance is ($" + accountBalance + ").");
         }
     }
@@ -218,7 +228,7 @@ public class DepositService {
     public void verifyUpdateDeposit(Deposit oldDeposit, Deposit depositToUpdateWith){
 
         // validate that deposit status is pending
-        if (!oldDeposit.getStatus().equals("Pending")){
+        if (oldDeposit.getStatus() != DepositStatus.PENDING){
             throw new InvalidInputException("Can not update deposit with status (" + oldDeposit.getStatus() + ").");
         }
 
@@ -228,44 +238,61 @@ public class DepositService {
         }
 
         // accountId still exists
-        verifyAccountExists(depositToUpdateWith.getAccountId());
+        entityLookup.account(depositToUpdateWith.getAccountId());
 
         // depositId's match
         if (!oldDeposit.getDepositId().equals(depositToUpdateWith.getDepositId())){
             throw new ConflictException("Updated depositId must match previous depositId.");
         }
 
-        // depositId still exists
-        verifyDepositExists(depositToUpdateWith.getDepositId());
-
         // verify the new deposit type is Deposit or P2P
-        if (!depositToUpdateWith.getType().equals("Deposit") && !depositToUpdateWith.getType().equals("P2P")){
+        if (depositToUpdateWith.getType() != TransactionType.DEPOSIT && depositToUpdateWith.getType() != TransactionType.P2P){
             throw new TransactionMismatchException("Transaction type (" + depositToUpdateWith.getType() + ") is not valid for this operation.");
         }
 
         // check if p2p, and if so that payeeid still exists
-        if (depositToUpdateWith.getType().equals("P2P")){
-            verifyAccountExists(depositToUpdateWith.getPayee_id());
+        if (depositToUpdateWith.getType() == TransactionType.P2P){
+            entityLookup.account(depositToUpdateWith.getPayee_id());
 
             // if p2p, make sure medium isn't points
-            if (!depositToUpdateWith.getMedium().equals("Balance")){
+            if (depositToUpdateWith.getMedium() != Medium.BALANCE){
                 throw new MediumMismatchException("Medium type (" + depositToUpdateWith.getMedium() + ") is not valid for this operation.");
             }
         }
     }
 
+    private <T extends Comparable<? super T>> void verifyRange(String label, T lowerBound, T upperBound){
+
+        if (lowerBound != null && upperBound != null && lowerBound.compareTo(upperBound) > 0){
+            throw new InvalidInputException(label + " range lower bound (" + lowerBound + ") is after its upper bound (" + upperBound + ").");
+        }
+    }
+
+    // filter bounds follow the same two decimal rule as stored amounts
+    private Long toMinorUnits(BigDecimal amount){
+
+        if (amount == null){
+            return null;
+        }
+        try {
+            return Money.of(amount).minorUnits();
+        } catch (ArithmeticException e){
+            throw new InvalidInputException("Amount (" + amount.toPlainString() + ") can have at most " + Money.SCALE + " decimal places.");
+        }
+    }
+
     public void verifyDepositIsPending(Deposit deposit){
 
-        String depositStatus = deposit.getStatus();
+        DepositStatus depositStatus = deposit.getStatus();
 
-        if (!depositStatus.equals("Pending")){
+        if (depositStatus != DepositStatus.PENDING){
             throw new ConflictException("Deposit status of (" + depositStatus + ") is not valid for processing.");
         }
     }
 
     // Process Transaction Methods
 
-    public ResponseEntity<?> processDepositTransaction(Long accountId, @Null Long payeeId, Medium depositMedium, Double depositAmount, String depositDescription){
+    public ResponseEntity<?> processDepositTransaction(Long accountId, @Null Long payeeId, Medium depositMedium, Money depositAmount, String depositDescription){
 
         // check deposit medium
         // if Balance medium
@@ -280,10 +307,10 @@ public class DepositService {
         }
     }
 
-    public ResponseEntity<?> processP2pTransaction(Long accountId, @NotNull Long payeeId, Medium depositMedium, Double depositAmount, String depositDescription){
+    public ResponseEntity<?> processP2pTransaction(Long accountId, @NotNull Long payeeId, Medium depositMedium, Money depositAmount, String depositDescription){
 
         // validate payeeId
-        verifyAccountExists(payeeId);
+        entityLookup.account(payeeId);
 
         // validate that deposit medium is not rewards, if so, throw new MediumMismatch error
         if (depositMedium.equals(Medium.REWARDS)){
@@ -298,16 +325,16 @@ public class DepositService {
 
     // Create Deposit Methods
 
-    public ResponseEntity<?> createBalanceDeposit(Long accountId, Double depositAmount, String depositDescription){
+    public ResponseEntity<?> createBalanceDeposit(Long accountId, Money depositAmount, String depositDescription){
 
         // create new Deposit object
         Deposit deposit = new Deposit();
 
         // set values of object
-        deposit.setType("Deposit");
-        deposit.setTransactionDate(LocalDate.now().toString());
-        deposit.setStatus("Pending");
-        deposit.setMedium("Balance");
+        deposit.setType(TransactionType.DEPOSIT);
+        deposit.setTransactionDate(LocalDate.now());
+        deposit.setStatus(DepositStatus.PENDING);
+        deposit.setMedium(Medium.BALANCE);
         deposit.setAmount(depositAmount);
         deposit.setDescription(depositDescription);
         deposit.setAccountId(accountId);
@@ -328,16 +355,16 @@ public class DepositService {
         return new ResponseEntity<>(apiResponse, HttpStatus.CREATED);
     }
 
-    public ResponseEntity<?> createRewardsDeposit(Long accountId, Double depositAmount, String depositDescription){
+    public ResponseEntity<?> createRewardsDeposit(Long accountId, Money depositAmount, String depositDescription){
 
         // create new Deposit object
         Deposit deposit = new Deposit();
 
         // set values of object
-        deposit.setType("Deposit");
-        deposit.setTransactionDate(LocalDate.now().toString());
-        deposit.setStatus("Pending");
-        deposit.setMedium("Rewards");
+        deposit.setType(TransactionType.DEPOSIT);
+        deposit.setTransactionDate(LocalDate.now());
+        deposit.setStatus(DepositStatus.PENDING);
+        deposit.setMedium(Medium.REWARDS);
         deposit.setAmount(depositAmount);
         deposit.setDescription(depositDescription);
         deposit.setAccountId(accountId);
@@ -359,17 +386,17 @@ public class DepositService {
         return new ResponseEntity<>(apiResponse, HttpStatus.CREATED);
     }
 
-    public ResponseEntity<?> createP2pDeposit(Long accountId, Long payeeId, Double depositAmount, String depositDescription){
+    public ResponseEntity<?> createP2pDeposit(Long accountId, Long payeeId, Money depositAmount, String depositDescription){
 
         // create new Deposit object
         Deposit deposit = new Deposit();
 
         // set values of object
-        deposit.setType("P2P");
-        deposit.setTransactionDate(LocalDate.now().toString());
-        deposit.setStatus("Pending");
+        deposit.setType(TransactionType.P2P);
+        deposit.setTransactionDate(LocalDate.now());
+        deposit.setStatus(DepositStatus.PENDING);
         deposit.setPayee_id(payeeId);
-        deposit.setMedium("Balance");
+        deposit.setMedium(Medium.BALANCE);
         deposit.setAmount(depositAmount);
         deposit.setDescription(depositDescription);
         deposit.setAccountId(accountId);
@@ -396,102 +423,108 @@ public class DepositService {
     public ResponseEntity<?> processDepositById(Long depositId) {
 
         // get deposit from depositId
-        verifyDepositExists(depositId);
-        Deposit deposit = depositRepository.findById(depositId).get();
+        Deposit deposit = entityLookup.deposit(depositId);
 
         // validate that deposit is pending
         verifyDepositIsPending(deposit);
 
-        // get account id from deposit
-        Long accountId = deposit.getAccountId();
-
-        // validate account still exists
-        verifyAccountExists(accountId);
-
-        // get transactionType
-        String transactionType = deposit.getType();
-
-        // get deposit amount
-        Double depositAmount = deposit.getAmount();
-
-
-        // if p2p
-        if (transactionType.equals("P2P")) {
-
-            // check payee account still exists
-            Long payeeId = deposit.getPayee_id();
-            verifyAccountExists(payeeId);
-
-            // check that payer balance >= deposit amount, if not throw InsufficientFundsException
-            verifySufficientFunds(accountId, depositAmount);
-
-            // add depositAmount to payee account balance
-            Optional<Account> payeeOptional = accountRepository.findById(payeeId);
-            Account payeeAccount = payeeOptional.get();
-
-            Double payeeBalance = payeeAccount.getBalance();
-            Double payeeNewBalance = payeeBalance + depositAmount;
-
-            payeeAccount.setBalance(payeeNewBalance);
-
-            accountRepository.save(payeeAccount);
-
-            // subtract depositAmount from payer account
-
-            Optional<Account> payerAccountOptional = accountRepository.findById(accountId);
-            Account payerAccount = payerAccountOptional.get();
-
-            Double payerBalance = payerAccount.getBalance();
-            Double payerNewBalance = payerBalance - depositAmount;
-
-            payerAccount.setBalance(payerNewBalance);
-
-            accountRepository.save(payerAccount);
+        processDeposits(List.of(deposit));
 
-            // update deposit status
-            deposit.setStatus("Completed");
-            deposit = depositRepository.save(deposit);
+        // the status was already updated by markCompleted, this only reflects it in the response
+        deposit.setStatus(DepositStatus.COMPLETED);
 
-            List<Deposit> listForResponse = new ArrayList<>();
-            listForResponse.add(deposit);
-
-            ApiResponse<?> apiResponse = new ApiResponse<>(200, "Deposit with Id (" + depositId + ") processed successfully.", listForResponse);
+        List<Deposit> listForResponse = new ArrayList<>();
+        listForResponse.add(deposit);
 
-            // log
-            log.info("Deposit with Id (" + depositId + ") processed successfully.");
+        ApiResponse<?> apiResponse = new ApiResponse<>(200, "Deposit with Id (" + depositId + ") processed successfully.", listForResponse);
 
-            // return response entity
-            return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+        // log
+        log.info("Deposit with Id (" + depositId + ") processed successfully.");
 
-        } else {
-            // if Deposit
-            // add deposit amount based on medium type to account balance
-            Optional<Account> accountOptional = accountRepository.findById(accountId);
-            Account account = accountOptional.get();
+        // return response entity
+        return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+    }
 
-            Double accountBalance = account.getBalance();
-            Double accountNewBalance = accountBalance + depositAmount;
+    // settles pending deposits in one transfer transaction, a failure of any of them rolls all of them back
+    public void processDeposits(List<Deposit> deposits) {
 
-            account.setBalance(accountNewBalance);
+        // every account the deposits touch is locked in ascending id order before anything changes,
+        // deadlocks and lock wait timeouts are retried by the executor
+        List<Long> accountIds = new ArrayList<>();
+        for (Deposit deposit : deposits) {
+            accountIds.add(deposit.getAccountId());
+            if (deposit.getType() == TransactionType.P2P && deposit.getPayee_id() != null) {
+                accountIds.add(deposit.getPayee_id());
+            }
+        }
+        transferExecutor.execute(accountIds, () -> {
+            applyDeposits(deposits);
+            return null;
+        });
+    }
 
-            accountRepository.save(account);
+    // runs inside the transfer transaction, any exception rolls back the claims and every balance change;
+    // the deposits are claimed in one UPDATE and each account gets one UPDATE for its summed change
+    private void applyDeposits(List<Deposit> deposits) {
 
-            // update deposit status
-            deposit.setStatus("Completed");
-            deposit = depositRepository.save(deposit);
+        List<Long> depositIds = new ArrayList<>(deposits.size());
+        for (Deposit deposit : deposits) {
+            depositIds.add(deposit.getDepositId());
+        }
 
-            // populate ApiResponse
-            List<Deposit> listForResponse = new ArrayList<>();
-            listForResponse.add(deposit);
+        // claim the deposits first, a concurrent call for the same deposit then finds nothing to complete
+        if (depositRepository.markCompleted(depositIds) != depositIds.size()) {
+            throw new ConflictException(depositIds.size() == 1
+                    ? "Deposit with Id (" + depositIds.get(0) + ") is already being processed."
+                    : "Some of the deposits with Ids " + depositIds + " are already being processed.");
+        }
 
-            ApiResponse<?> apiResponse = new ApiResponse<>(200, "Deposit with Id (" + depositId + ") processed successfully.", listForResponse);
+        // net change per account in cents, ascending account order like the row locks
+        Map<Long, Long> deltas = new TreeMap<>();
+        for (Deposit deposit : deposits) {
+            long amount = deposit.getAmount().minorUnits();
+
+            if (deposit.getType() == TransactionType.P2P) {
+                Long payeeId = deposit.getPayee_id();
+                if (payeeId == null) {
+                    throw new ResourceNotFoundException("Account with Id (" + payeeId + ") not found.");
+                }
+                // the payer pays, the payee receives
+                deltas.merge(deposit.getAccountId(), -amount, Money::add);
+                deltas.merge(payeeId, amount, Money::add);
+            } else {
+                // if Deposit, add deposit amount to account balance
+                deltas.merge(deposit.getAccountId(), amount, Money::add);
+            }
+        }
 
-            // log
-            log.info("Deposit with Id (" + depositId  + ") processed successfully.");
+        // balances are changed in place by the database, the accounts are never read back into Java
+        long spreadKey = depositIds.get(0);
+        for (Map.Entry<Long, Long> delta : deltas.entrySet()) {
+            Long accountId = delta.getKey();
+            long amount = delta.getValue();
+
+            if (amount < 0) {
+                // only if the balance covers the account's whole net payment
+                if (!accountBalanceLedger.debit(accountId, -amount)) {
+                    throw insufficientFundsOrMissingAccount(accountId, Money.ofMinorUnits(-amount));
+                }
+            } else if (!accountBalanceLedger.credit(accountId, amount, spreadKey)) {
+                throw new ResourceNotFoundException("Account with Id (" + accountId + ") not found.");
+            }
+        }
+    }
 
-            //return response entity
-            return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+    // only reached once a conditional debit has failed, so the extra read stays off the happy path;
+    // it reads the balance column itself, not the cached account, so the reported balance is current
+    private RuntimeException insufficientFundsOrMissingAccount(Long accountId, Money depositAmount) {
 
+        List<Object[]> balanceAndRewards = accountRepository.findBalanceAndRewardsById(accountId);
+        if (balanceAndRewards.isEmpty()) {
+            return new ResourceNotFoundException("Account with Id (" + accountId + ") not found.");
         }
+
+        Money accountBalance = accountBalanceLedger.availableBalance(accountId, (Money) balanceAndRewards.get(0)[0]);
+        return new InsufficientFundsException("Insufficient funds in account for deposit transaction of ($" + depositAmount + "). Current account balance is ($" + accountBalance + ").");
     }
 }
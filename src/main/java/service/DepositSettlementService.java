@@ -0,0 +1,279 @@
+package service;
+
+
+import domain.Account;
+import domain.Deposit;
+import domain.Money;
+import domain.enums.TransactionType;
+import exceptions.ConflictException;
+import exceptions.InternalServerErrorException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import repository.AccountRepository;
+import repository.DepositRepository;
+import successfulresponse.ApiResponse;
+import util.SettlementSummary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Service
+public class DepositSettlementService {
+
+    private static final Logger log = LoggerFactory.getLogger(DepositSettlementService.class);
+
+    @Autowired
+    private DepositRepository depositRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AccountBalanceLedger accountBalanceLedger;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${banking.settlement.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${banking.settlement.workers:4}")
+    private int workers;
+
+    @Value("${banking.settlement.scheduled:true}")
+    private boolean scheduled;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    private ExecutorService workerPool;
+
+
+    @PostConstruct
+    public void startWorkers() {
+        workerPool = Executors.newFixedThreadPool(workers, new CustomizableThreadFactory("settlement-worker-"));
+    }
+
+    @PreDestroy
+    public void stopWorkers() {
+        workerPool.shutdown();
+    }
+
+    public ResponseEntity<?> settlePendingDepositsOnDemand() {
+
+        SettlementSummary summary = settlePendingDeposits();
+
+        List<SettlementSummary> listForResponse = new ArrayList<>();
+        listForResponse.add(summary);
+
+        ApiResponse<SettlementSummary> apiResponse = new ApiResponse<>(200, "Settled " + summary.getDepositsSettled() + " of " + summary.getDepositsScanned() + " pending deposits.", listForResponse);
+
+        return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+    }
+
+    @Scheduled(fixedDelayString = "${banking.settlement.fixed-delay-ms:60000}", initialDelayString = "${banking.settlement.fixed-delay-ms:60000}")
+    public void settleOnSchedule() {
+
+        if (!scheduled) {
+            return;
+        }
+
+        try {
+            settlePendingDeposits();
+        } catch (ConflictException e) {
+            log.info("Skipping scheduled settlement: " + e.getMessage());
+        }
+    }
+
+    public SettlementSummary settlePendingDeposits() {
+
+        if (!running.compareAndSet(false, true)) {
+            throw new ConflictException("A deposit settlement run is already in progress.");
+        }
+
+        try {
+            SettlementSummary total = new SettlementSummary();
+            long cursor = 0L;
+
+            List<Deposit> pendingDeposits = depositRepository.findPendingAfter(cursor, chunkSize);
+
+            while (!pendingDeposits.isEmpty()) {
+                total.add(settleChunk(pendingDeposits));
+
+                // anything skipped stays pending and is picked up by the next run
+                cursor = pendingDeposits.get(pendingDeposits.size() - 1).getDepositId();
+                pendingDeposits = depositRepository.findPendingAfter(cursor, chunkSize);
+            }
+
+            log.info("Deposit settlement finished: " + total.getDepositsSettled() + " settled, " + total.getDepositsSkipped() + " skipped, " + total.getAccountsUpdated() + " account updates.");
+
+            return total;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private SettlementSummary settleChunk(List<Deposit> pendingDeposits) {
+
+        // every deposit of a paying account lands in the same partition, so one worker owns its debits
+        List<List<Deposit>> partitions = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            partitions.add(new ArrayList<>());
+        }
+        for (Deposit deposit : pendingDeposits) {
+            partitions.get(Math.floorMod(deposit.getAccountId(), workers)).add(deposit);
+        }
+
+        List<Future<SettlementSummary>> results = new ArrayList<>(workers);
+        for (List<Deposit> partition : partitions) {
+            if (!partition.isEmpty()) {
+                results.add(workerPool.submit(() -> settlePartition(partition)));
+            }
+        }
+
+        SettlementSummary chunkSummary = new SettlementSummary();
+        for (Future<SettlementSummary> result : results) {
+            try {
+                chunkSummary.add(result.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InternalServerErrorException("Deposit settlement was interrupted.", e);
+            } catch (ExecutionException e) {
+                throw new InternalServerErrorException("Deposit settlement failed.", e.getCause());
+            }
+        }
+        return chunkSummary;
+    }
+
+    private SettlementSummary settlePartition(List<Deposit> deposits) {
+
+        SettlementSummary summary = new SettlementSummary();
+        summary.setDepositsScanned(deposits.size());
+
+        try {
+            SettlementSummary settled = new TransactionTemplate(transactionManager).execute(status -> applyPartition(deposits));
+            summary.setDepositsSettled(settled.getDepositsSettled());
+            summary.setAccountsUpdated(settled.getAccountsUpdated());
+        } catch (RuntimeException e) {
+            // the whole partition rolled back, its deposits stay pending for the next run
+            log.warn("Deposit settlement partition of " + deposits.size() + " deposits rolled back: " + e.getMessage());
+        }
+
+        summary.setDepositsSkipped(summary.getDepositsScanned() - summary.getDepositsSettled());
+        return summary;
+    }
+
+    private SettlementSummary applyPartition(List<Deposit> deposits) {
+
+        // one IN query for every account the partition touches
+        Set<Long> accountIds = new HashSet<>();
+        for (Deposit deposit : deposits) {
+            accountIds.add(deposit.getAccountId());
+            if (deposit.getPayee_id() != null) {
+                accountIds.add(deposit.getPayee_id());
+            }
+        }
+        // the partition's accounts in ascending id order; balances and deltas are raw cents kept by the account's
+        // position, so nothing is boxed or created per deposit
+        List<Account> accounts = new ArrayList<>();
+        accountRepository.findAllById(accountIds).forEach(accounts::add);
+        accounts.sort(Comparator.comparing(Account::getId));
+
+        // striped balances are read from the slot rows in the same transaction, one query for the partition
+        Map<Long, Long> slotTotals = accountBalanceLedger.slotTotals(accountIds);
+
+        long[] accountIdsInOrder = new long[accounts.size()];
+        long[] balances = new long[accounts.size()];
+        for (int i = 0; i < accounts.size(); i++) {
+            Account account = accounts.get(i);
+            accountIdsInOrder[i] = account.getId();
+            balances[i] = accountBalanceLedger.withSlots(account, slotTotals.getOrDefault(account.getId(), 0L)).minorUnits();
+        }
+
+        long[] deltas = new long[accountIdsInOrder.length];
+        boolean[] updated = new boolean[accountIdsInOrder.length];
+        List<Long> settledDepositIds = sumDeltas(deposits, accountIdsInOrder, balances, deltas, updated);
+
+        SettlementSummary summary = new SettlementSummary();
+        if (settledDepositIds.isEmpty()) {
+            return summary;
+        }
+
+        if (depositRepository.markCompleted(settledDepositIds) != settledDepositIds.size()) {
+            throw new ConflictException("Some deposits in the partition were settled concurrently.");
+        }
+
+        // ascending account order, so concurrent partitions always lock rows in the same order
+        int accountsUpdated = 0;
+        for (int i = 0; i < accountIdsInOrder.length; i++) {
+            if (!updated[i]) {
+                continue;
+            }
+            if (!accountBalanceLedger.applyDelta(accountIdsInOrder[i], deltas[i], Thread.currentThread().getId())) {
+                throw new ConflictException("Balance of account with Id (" + accountIdsInOrder[i] + ") changed during settlement.");
+            }
+            accountsUpdated++;
+        }
+
+        summary.setDepositsSettled(settledDepositIds.size());
+        summary.setAccountsUpdated(accountsUpdated);
+        return summary;
+    }
+
+    // sums the deltas per account into deltas and updated, both indexed like accountIdsInOrder, in deposit order so
+    // earlier deposits get the funds first, and returns the ids of the deposits that can be settled;
+    // package visible so DepositSettlementBenchmark measures this loop and not a copy of it
+    static List<Long> sumDeltas(List<Deposit> deposits, long[] accountIdsInOrder, long[] balances, long[] deltas, boolean[] updated) {
+
+        List<Long> settledDepositIds = new ArrayList<>();
+
+        for (Deposit deposit : deposits) {
+            int account = Arrays.binarySearch(accountIdsInOrder, deposit.getAccountId());
+            long amount = deposit.getAmount().minorUnits();
+
+            if (account < 0) {
+                continue;
+            }
+
+            if (deposit.getType() == TransactionType.P2P) {
+                int payee = deposit.getPayee_id() == null ? -1 : Arrays.binarySearch(accountIdsInOrder, deposit.getPayee_id());
+                long available = Money.add(balances[account], deltas[account]);
+
+                if (payee < 0 || Money.compare(available, amount) < 0) {
+                    continue;
+                }
+
+                deltas[account] = Money.subtract(deltas[account], amount);
+                deltas[payee] = Money.add(deltas[payee], amount);
+                updated[payee] = true;
+            } else {
+                deltas[account] = Money.add(deltas[account], amount);
+            }
+
+            updated[account] = true;
+            settledDepositIds.add(deposit.getDepositId());
+        }
+
+        return settledDepositIds;
+    }
+}
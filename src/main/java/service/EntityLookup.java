@@ -0,0 +1,116 @@
+package service;
+
+
+import domain.Account;
+import domain.Bill;
+import domain.Customer;
+import domain.Deposit;
+import domain.Withdrawal;
+import exceptions.ResourceNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import repository.AccountRepository;
+import repository.BillRepository;
+import repository.CustomerRepository;
+import repository.DepositRepository;
+import repository.WithdrawalRepository;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Loads an entity or throws the not found error for it, so validating that something exists also hands it back.
+// Found entities are remembered for the rest of the HTTP request; outside a request every call reads the database.
+@Service
+public class EntityLookup {
+
+    private static final String MEMO_ATTRIBUTE = EntityLookup.class.getName() + ".";
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private DepositRepository depositRepository;
+
+    @Autowired
+    private BillRepository billRepository;
+
+    @Autowired
+    private WithdrawalRepository withdrawalRepository;
+
+
+    public Account account(Long accountId) {
+        return find(Account.class, "Account", accountId, accountRepository);
+    }
+
+    public Customer customer(Long customerId) {
+        return find(Customer.class, "Customer", customerId, customerRepository);
+    }
+
+    public Deposit deposit(Long depositId) {
+        return find(Deposit.class, "Deposit", depositId, depositRepository);
+    }
+
+    public Bill bill(Long billId) {
+        return find(Bill.class, "Bill", billId, billRepository);
+    }
+
+    public Withdrawal withdrawal(Long withdrawalId) {
+        return find(Withdrawal.class, "Withdrawal", withdrawalId, withdrawalRepository);
+    }
+
+    // callers that change a row behind JPA's back (native updates, deletes) drop it so the next lookup reads it again
+    public void forget(Class<?> entityType, Long id) {
+
+        Map<Long, Object> memo = memo(entityType, false);
+        if (memo != null) {
+            memo.remove(id);
+        }
+    }
+
+    private <T> T find(Class<T> entityType, String label, Long id, CrudRepository<T, Long> repository) {
+
+        if (id == null) {
+            throw new ResourceNotFoundException(label + " with Id (" + id + ") not found.");
+        }
+
+        Map<Long, Object> memo = memo(entityType, true);
+        if (memo != null) {
+            Object remembered = memo.get(id);
+            if (remembered != null) {
+                return entityType.cast(remembered);
+            }
+        }
+
+        // misses are not remembered, the entity may be created later in the same request
+        T entity = repository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException(label + " with Id (" + id + ") not found."));
+
+        if (memo != null) {
+            memo.put(id, entity);
+        }
+        return entity;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, Object> memo(Class<?> entityType, boolean create) {
+
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes == null) {
+            return null;
+        }
+
+        String name = MEMO_ATTRIBUTE + entityType.getSimpleName();
+        Map<Long, Object> memo = (Map<Long, Object>) requestAttributes.getAttribute(name, RequestAttributes.SCOPE_REQUEST);
+        if (memo == null && create) {
+            memo = new HashMap<>();
+            requestAttributes.setAttribute(name, memo, RequestAttributes.SCOPE_REQUEST);
+        }
+        return memo;
+    }
+}
@@ -0,0 +1,219 @@
+package service;
+
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import domain.IdempotencyRecord;
+import exceptions.ConflictException;
+import exceptions.InternalServerErrorException;
+import exceptions.InvalidInputException;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import repository.IdempotencyRecordRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+// Makes a POST safe to retry with an Idempotency-Key header. The first request claims the key in the database,
+// its 2xx response is stored and every later request with the same key gets that response back. Completed
+// responses are also kept in memory, so a retry usually never reaches the database or the service.
+@Service
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${banking.idempotency.retention:24h}")
+    private Duration retention;
+
+    @Value("${banking.idempotency.cache-size:100000}")
+    private long cacheSize;
+
+    // a claim still unfinished after this long belongs to a request that died, a retry may take it over;
+    // it has to be longer than any request takes
+    @Value("${banking.idempotency.in-flight-timeout:60s}")
+    private Duration inFlightTimeout;
+
+    private Cache<String, IdempotencyRecord> completed;
+
+
+    @PostConstruct
+    public void createCache() {
+        completed = Caffeine.newBuilder().maximumSize(cacheSize).expireAfterWrite(retention).build();
+    }
+
+    // scope names the endpoint and resource, a client key is only unique within it
+    public ResponseEntity<?> execute(String idempotencyKey, String scope, Object request, Supplier<ResponseEntity<?>> action) {
+
+        if (idempotencyKey == null) {
+            return action.get();
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new InvalidInputException(HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters.");
+        }
+
+        String key = scope + " " + idempotencyKey;
+        String requestHash = hash(scope, request);
+
+        IdempotencyRecord record = completed.getIfPresent(key);
+        if (record == null) {
+            record = findStored(key);
+        }
+
+        // the database keeps microseconds, the claim time has to compare equal after a round trip
+        Instant claimedAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
+
+        if (record != null) {
+            if (!isAbandoned(record, requestHash)) {
+                return replay(record, requestHash, idempotencyKey);
+            }
+            if (idempotencyRecordRepository.reclaim(key, record.getCreatedAt(), claimedAt) == 0) {
+                throw new ConflictException("A request with " + HEADER + " (" + idempotencyKey + ") is still being processed.");
+            }
+            log.warn("Took over the abandoned " + HEADER + " claim (" + idempotencyKey + ") from " + record.getCreatedAt() + ".");
+        } else {
+            try {
+                idempotencyRecordRepository.claim(key, requestHash, claimedAt);
+            } catch (DataIntegrityViolationException e) {
+                // another request claimed the key between the lookup and the insert
+                Optional<IdempotencyRecord> claimed = idempotencyRecordRepository.findById(key);
+                if (claimed.isEmpty()) {
+                    throw new ConflictException("A request with " + HEADER + " (" + idempotencyKey + ") is still being processed.");
+                }
+                return replay(claimed.get(), requestHash, idempotencyKey);
+            }
+        }
+
+        ResponseEntity<?> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            // failed requests are not stored, the client may retry with the same key
+            idempotencyRecordRepository.release(key, claimedAt);
+            throw e;
+        }
+
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            idempotencyRecordRepository.release(key, claimedAt);
+            return response;
+        }
+
+        String responseBody = toJson(response.getBody());
+        if (idempotencyRecordRepository.complete(key, claimedAt, response.getStatusCode().value(), responseBody) == 0) {
+            // ran past the in-flight timeout and a retry took the key over, that retry's outcome is the stored one
+            log.warn(HEADER + " (" + idempotencyKey + ") was taken over before its request finished, the response is not stored.");
+            return response;
+        }
+
+        IdempotencyRecord stored = new IdempotencyRecord();
+        stored.setKey(key);
+        stored.setRequestHash(requestHash);
+        stored.setStatusCode(response.getStatusCode().value());
+        stored.setResponseBody(responseBody);
+        stored.setCreatedAt(claimedAt);
+        completed.put(key, stored);
+
+        return response;
+    }
+
+    @Scheduled(fixedDelayString = "${banking.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+
+        int purged = idempotencyRecordRepository.deleteAllExpired(Instant.now().minus(retention));
+        if (purged > 0) {
+            log.info("Purged " + purged + " expired idempotency records.");
+        }
+    }
+
+    // a completed record from the database, expired ones are removed so the key can be claimed again
+    private IdempotencyRecord findStored(String key) {
+
+        Optional<IdempotencyRecord> stored = idempotencyRecordRepository.findById(key);
+        if (stored.isEmpty()) {
+            return null;
+        }
+
+        IdempotencyRecord record = stored.get();
+        Instant expiry = Instant.now().minus(retention);
+        if (record.getCreatedAt().isBefore(expiry)) {
+            idempotencyRecordRepository.deleteExpired(key, expiry);
+            return null;
+        }
+        if (record.getStatusCode() != 0) {
+            completed.put(key, record);
+        }
+        return record;
+    }
+
+    // still in flight long past any request's duration, the request that claimed it is gone
+    private boolean isAbandoned(IdempotencyRecord record, String requestHash) {
+        return record.getStatusCode() == 0
+                && record.getRequestHash().equals(requestHash)
+                && record.getCreatedAt().isBefore(Instant.now().minus(inFlightTimeout));
+    }
+
+    private ResponseEntity<?> replay(IdempotencyRecord record, String requestHash, String idempotencyKey) {
+
+        if (!record.getRequestHash().equals(requestHash)) {
+            throw new ConflictException(HEADER + " (" + idempotencyKey + ") was already used for a different request.");
+        }
+        if (record.getStatusCode() == 0) {
+            throw new ConflictException("A request with " + HEADER + " (" + idempotencyKey + ") is still being processed.");
+        }
+
+        // the body is the stored JSON, written out as is
+        return ResponseEntity.status(record.getStatusCode())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(REPLAYED_HEADER, "true")
+                .body(record.getResponseBody());
+    }
+
+    private String hash(String scope, Object request) {
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(scope.getBytes(StandardCharsets.UTF_8));
+            digest.update(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new InternalServerErrorException("Could not hash the request for " + HEADER + ".", e);
+        }
+    }
+
+    private String toJson(Object body) {
+
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new InternalServerErrorException("Could not store the response for " + HEADER + ".", e);
+        }
+    }
+}
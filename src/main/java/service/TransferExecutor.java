@@ -0,0 +1,156 @@
+package service;
+
+
+import exceptions.ConflictException;
+import exceptions.InternalServerErrorException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import repository.AccountRepository;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Runs balance changes in a transaction that first locks every involved ACCOUNT row in ascending id order,
+// so two transfers between the same accounts always queue instead of deadlocking. Deadlocks and lock wait
+// timeouts that still happen (e.g. against other writers) are retried in a fresh transaction.
+@Service
+public class TransferExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(TransferExecutor.class);
+
+    // MySQL error codes, see ER_LOCK_DEADLOCK and ER_LOCK_WAIT_TIMEOUT
+    private static final int MYSQL_DEADLOCK = 1213;
+    private static final int MYSQL_LOCK_WAIT_TIMEOUT = 1205;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AccountBalanceLedger accountBalanceLedger;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${banking.transfers.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${banking.transfers.backoff-initial-ms:10}")
+    private long backoffInitialMs;
+
+    @Value("${banking.transfers.backoff-max-ms:500}")
+    private long backoffMaxMs;
+
+    private Counter deadlockRetries;
+    private Counter lockTimeoutRetries;
+    private Counter exhaustedRetries;
+    private Timer lockWait;
+    private Timer backoffWait;
+
+
+    @PostConstruct
+    public void registerMetrics() {
+        deadlockRetries = Counter.builder("banking.transfers.retries").tag("cause", "deadlock")
+                .description("Transfers retried after losing a deadlock").register(meterRegistry);
+        lockTimeoutRetries = Counter.builder("banking.transfers.retries").tag("cause", "lock_timeout")
+                .description("Transfers retried after a lock wait timeout").register(meterRegistry);
+        exhaustedRetries = Counter.builder("banking.transfers.failures")
+                .description("Transfers that still failed on a lock after the last attempt").register(meterRegistry);
+        lockWait = Timer.builder("banking.transfers.lock.wait")
+                .description("Time spent acquiring the account row locks").register(meterRegistry);
+        backoffWait = Timer.builder("banking.transfers.backoff")
+                .description("Time spent sleeping between retries").register(meterRegistry);
+    }
+
+    public <T> T execute(Collection<Long> accountIds, Supplier<T> work) {
+
+        // ascending and de-duplicated, a self transfer only locks its row once
+        TreeSet<Long> lockOrder = new TreeSet<>(accountIds);
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return new TransactionTemplate(transactionManager).execute(status -> {
+                    lockAccounts(lockOrder);
+                    return work.get();
+                });
+            } catch (RuntimeException e) {
+                Counter retries = classify(e);
+                if (retries == null) {
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    exhaustedRetries.increment();
+                    throw new ConflictException("Transfer between accounts " + lockOrder + " could not acquire its locks, please retry.", e);
+                }
+
+                retries.increment();
+                log.warn("Transfer between accounts " + lockOrder + " hit a lock failure on attempt " + attempt + ", retrying: " + e.getMessage());
+                backoff(attempt);
+            }
+        }
+    }
+
+    private void lockAccounts(TreeSet<Long> lockOrder) {
+
+        long start = System.nanoTime();
+        for (Long accountId : lockOrder) {
+            // striped accounts are locked through their slot rows by the ledger, not the ACCOUNT row
+            if (!accountBalanceLedger.isStriped(accountId)) {
+                accountRepository.lockAccount(accountId);
+            }
+        }
+        lockWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    // returns the retry counter for a deadlock or lock wait timeout, null if the failure is not retryable
+    private Counter classify(RuntimeException e) {
+
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException) {
+                if (sqlException.getErrorCode() == MYSQL_DEADLOCK) {
+                    return deadlockRetries;
+                }
+                if (sqlException.getErrorCode() == MYSQL_LOCK_WAIT_TIMEOUT) {
+                    return lockTimeoutRetries;
+                }
+            }
+        }
+
+        // no vendor code in the chain, fall back to Spring's translation
+        if (e instanceof PessimisticLockingFailureException) {
+            return deadlockRetries;
+        }
+        return null;
+    }
+
+    // full jitter: a random sleep up to an exponentially growing cap, so colliding transfers spread out
+    private void backoff(int attempt) {
+
+        long cap = Math.min(backoffMaxMs, backoffInitialMs << Math.min(attempt - 1, 20));
+        long sleepMs = ThreadLocalRandom.current().nextLong(cap + 1);
+
+        try {
+            backoffWait.record(sleepMs, TimeUnit.MILLISECONDS);
+            Thread.sleep(sleepMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InternalServerErrorException("Transfer retry was interrupted.", e);
+        }
+    }
+}
@@ -1,25 +1,31 @@
 package service;
 
 
-import domain.Account;
+import domain.Money;
 import domain.Withdrawal;
 import domain.enums.TransactionType;
 import exceptions.InsufficientFundsException;
 import exceptions.ResourceNotFoundException;
 import exceptions.TransactionMismatchException;
+import io.micrometer.core.annotation.Timed;
+import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import repository.AccountRepository;
 import repository.WithdrawalRepository;
-import successfulresponse.ApiResponse;
+import successfulresponse.PagedApiResponse;
+import successfulresponse.ResponseMessages;
+import successfulresponse.SingleApiResponse;
+import util.PageLimits;
+import util.WithdrawalEffect;
 
-import java.util.ArrayList;
+import java.time.LocalDate;
 import java.util.List;
-import java.util.Optional;
 
 @Service
+@Timed(value = "banking.service", histogram = true)
 public class WithdrawalService {
 
     @Autowired
@@ -28,216 +34,109 @@ public class WithdrawalService {
     @Autowired
     private AccountRepository accountRepository;
 
+    @Autowired
+    private AccountBalanceLedger accountBalanceLedger;
+
+    @Autowired
+    private EntityLookup entityLookup;
 
+
+    // pending withdrawals take nothing, so an executed one is charged whenever it is created or moved into that state
+    @Transactional
     public void createWithdrawal(Withdrawal withdrawal, Long accountId) {
-        verifyAccountExists(accountId);
         verifyNotDeposit(withdrawal.getType());
-        verifySufficientFunds(accountId, withdrawal.getAmount());
-        if (withdrawal.getMedium().equalsIgnoreCase("balance")) {
-            Double newAccountBalance = accountRepository.findById(accountId).get().getBalance() - withdrawal.getAmount();
-            if (withdrawal.getStatus().equalsIgnoreCase("executed")) {
-                accountRepository.findById(accountId).get().setBalance(newAccountBalance);
-            }
-        }
-        if (withdrawal.getMedium().equalsIgnoreCase("rewards")) {
-            Integer newRewardsBalance = accountRepository.findById(accountId).get().getRewards() - withdrawal.getAmount().intValue();
-            if (withdrawal.getStatus().equalsIgnoreCase("executed")) {
-                accountRepository.findById(accountId).get().setRewards(newRewardsBalance);
-            }
+        WithdrawalEffect effect = WithdrawalEffect.of(withdrawal.getMedium(), withdrawal.getStatus(), withdrawal.getAmount());
+        if (effect.isNone()) {
+            entityLookup.account(accountId);
+        } else {
+            applyEffect(accountId, effect, withdrawal.getAmount());
         }
+        withdrawal.setId(null);
+        withdrawal.setPayer_id(accountId);
         withdrawal = withdrawalRepository.save(withdrawal);
     }
 
-    public Iterable<Withdrawal> getAllWithdrawalsByAccountId(Long accountId) {
-        verifyAccountExists(accountId);
-        return withdrawalRepository.findAll();
+    public ResponseEntity<?> getAllWithdrawalsByAccountId(Long accountId, Integer limit, Long after, LocalDate from, LocalDate to, String status) {
+        entityLookup.account(accountId);
+        int pageLimit = PageLimits.resolve(limit);
+        List<Withdrawal> listOfWithdrawals = withdrawalRepository.findPageByPayerId(accountId, PageLimits.resolveCursor(after),
+                from, to, status == null ? null : WithdrawalEffect.parseStatus(status).name(), pageLimit + 1);
+        Long nextCursor = null;
+        if (listOfWithdrawals.size() > pageLimit) {
+            listOfWithdrawals = listOfWithdrawals.subList(0, pageLimit);
+            nextCursor = listOfWithdrawals.get(pageLimit - 1).getId();
+        }
+        PagedApiResponse<Withdrawal> successfulResponse = new PagedApiResponse<>(HttpStatus.OK.value(), "All withdrawals retrieved successfully", listOfWithdrawals, nextCursor);
+        return new ResponseEntity<>(successfulResponse, HttpStatus.OK);
     }
 
 
     public ResponseEntity<?> getWithdrawalById(Long withdrawalId) {
-        verifyWithdrawalExists(withdrawalId);
-        Optional<Withdrawal> withdrawal = withdrawalRepository.findById(withdrawalId);
-        List<Withdrawal> listOfWithdrawal = new ArrayList<>();
-        withdrawal.ifPresent(listOfWithdrawal::add);
-        ApiResponse<Withdrawal> successfulResponse = new ApiResponse<>();
-        successfulResponse.setCode(HttpStatus.OK.value());
-        successfulResponse.setMessage("Withdrawal with id " + withdrawalId + " retrieved");
-        successfulResponse.setData(listOfWithdrawal);
+        SingleApiResponse<Withdrawal> successfulResponse = new SingleApiResponse<>(HttpStatus.OK.value(), ResponseMessages.WITHDRAWAL_RETRIEVED, entityLookup.withdrawal(withdrawalId));
         return new ResponseEntity<>(successfulResponse, HttpStatus.OK);
     }
 
+    // one locking read of the withdrawal, at most one conditional UPDATE of the account and the withdrawal write
+    @Transactional
     public void updateWithdrawal(Withdrawal withdrawal, Long withdrawalId) {
-        Double dbAmount = withdrawalRepository.findById(withdrawalId).get().getAmount();
-        Double bodyAmount = withdrawal.getAmount();
-        Long accountId = withdrawalRepository.findById(withdrawalId).get().getPayer_id();
-        Double balance = accountRepository.findById(accountId).get().getBalance();
-        Integer rewards = accountRepository.findById(accountId).get().getRewards();
-        Double newBalance;
-        Integer newRewards;
-        String dbMedium = withdrawalRepository.findById(withdrawalId).get().getMedium();
-        String bodyMedium = withdrawal.getMedium();
-        String dbStatus = withdrawalRepository.findById(withdrawalId).get().getStatus();
-        String bodyStatus = withdrawal.getStatus();
-
-        verifyWithdrawalExists(withdrawalId);
-        verifySufficientFunds(accountId, withdrawal.getAmount());
-
-        if(dbMedium.equalsIgnoreCase(bodyMedium) && bodyStatus.equalsIgnoreCase(dbStatus) && bodyStatus.equalsIgnoreCase("executed")){
-            if (dbAmount > bodyAmount) {
-                if (withdrawalRepository.findById(withdrawalId).get().getMedium().equalsIgnoreCase("balance")) {
-                    newBalance = balance + (dbAmount - bodyAmount);
-                    accountRepository.findById(accountId).get().setBalance(newBalance);
-                }
-                if (withdrawalRepository.findById(withdrawalId).get().getMedium().equalsIgnoreCase("rewards")) {
-                    newRewards = rewards + (dbAmount.intValue() - bodyAmount.intValue());
-                    accountRepository.findById(accountId).get().setRewards(newRewards);
-                }
-            }
-            if (dbAmount < bodyAmount) {
-                if (withdrawalRepository.findById(withdrawalId).get().getMedium().equalsIgnoreCase("balance")) {
-                    newBalance = balance - (bodyAmount - dbAmount);
-                    accountRepository.findById(accountId).get().setBalance(newBalance);
-                }
-                if (withdrawalRepository.findById(withdrawalId).get().getMedium().equalsIgnoreCase("rewards")) {
-                    newRewards = rewards - (bodyAmount.intValue() - dbAmount.intValue());
-                    accountRepository.findById(accountId).get().setRewards(newRewards);
-                }
-            }
-        }
-        if(!dbMedium.equalsIgnoreCase(bodyMedium) && bodyStatus.equalsIgnoreCase(dbStatus) && bodyStatus.equalsIgnoreCase("executed")){
-            if (withdrawalRepository.findById(withdrawalId).get().getMedium().equalsIgnoreCase("balance")) {
-                Double newAccountBalance = accountRepository.findById(accountId).get().getBalance() + dbAmount;
-                accountRepository.findById(accountId).get().setBalance(newAccountBalance);
-            }
-            if (withdrawalRepository.findById(withdrawalId).get().getMedium().equalsIgnoreCase("rewards")) {
-                Integer newRewardsBalance = accountRepository.findById(accountId).get().getRewards() + dbAmount.intValue();
-                accountRepository.findById(accountId).get().setRewards(newRewardsBalance);
-            }
-            if (withdrawalRepository.findById(withdrawalId).get().getMedium().equalsIgnoreCase("balance")) {
-                newRewards = rewards - bodyAmount.intValue();
-                accountRepository.findById(accountId).get().setRewards(newRewards);
-            }
-            if (withdrawalRepository.findById(withdrawalId).get().getMedium().equalsIgnoreCase("rewards")) {
-                newBalance = balance - bodyAmount;
-                accountRepository.findById(accountId).get().setBalance(newBalance);
-            }
-        }
-        if(dbMedium.equalsIgnoreCase(bodyMedium) && !bodyStatus.equalsIgnoreCase(dbStatus) && bodyStatus.equalsIgnoreCase("executed")){
-            if (withdrawal.getMedium().equalsIgnoreCase("balance")) {
-                newBalance = balance - bodyAmount;
-                accountRepository.findById(accountId).get().setBalance(newBalance);
-            }
-            if (withdrawal.getMedium().equalsIgnoreCase("rewards")) {
-                newRewards = rewards - bodyAmount.intValue();
-                accountRepository.findById(accountId).get().setRewards(newRewards);
-            }
-            if (dbAmount > bodyAmount) {
-                if (withdrawalRepository.findById(withdrawalId).get().getMedium().equalsIgnoreCase("balance")) {
-                    newBalance = balance + (dbAmount - bodyAmount);
-                    accountRepository.findById(accountId).get().setBalance(newBalance);
-                }
-                if (withdrawalRepository.findById(withdrawalId).get().getMedium().equalsIgnoreCase("rewards")) {
-                    newRewards = rewards + (dbAmount.intValue() - bodyAmount.intValue());
-                    accountRepository.findById(accountId).get().setRewards(newRewards);
-                }
-            }
-            if (dbAmount < bodyAmount) {
-                if (withdrawalRepository.findById(withdrawalId).get().getMedium().equalsIgnoreCase("balance")) {
-                    newBalance = balance - (bodyAmount - dbAmount);
-                    accountRepository.findById(accountId).get().setBalance(newBalance);
-                }
-                if (withdrawalRepository.findById(withdrawalId).get().getMedium().equalsIgnoreCase("rewards")) {
-                    newRewards = rewards - (bodyAmount.intValue() - dbAmount.intValue());
-                    accountRepository.findById(accountId).get().setRewards(newRewards);
-                }
-            }
-        }
-        if(!dbMedium.equalsIgnoreCase(bodyMedium) && !bodyStatus.equalsIgnoreCase(dbStatus) && bodyStatus.equalsIgnoreCase("executed")){
-            if (withdrawal.getMedium().equalsIgnoreCase("balance")) {
-                newBalance = balance - bodyAmount;
-                accountRepository.findById(accountId).get().setBalance(newBalance);
-            }
-            if (withdrawal.getMedium().equalsIgnoreCase("rewards")) {
-                newRewards = rewards - bodyAmount.intValue();
-                accountRepository.findById(accountId).get().setRewards(newRewards);
-            }
-            if (withdrawalRepository.findById(withdrawalId).get().getMedium().equalsIgnoreCase("balance")) {
-                newRewards = rewards - bodyAmount.intValue();
-                accountRepository.findById(accountId).get().setRewards(newRewards);
-            }
-            if (withdrawalRepository.findById(withdrawalId).get().getMedium().equalsIgnoreCase("rewards")) {
-                newBalance = balance - bodyAmount;
-                accountRepository.findById(accountId).get().setBalance(newBalance);
-            }
-        }
-        if(dbMedium.equalsIgnoreCase(bodyMedium) && !bodyStatus.equalsIgnoreCase(dbStatus) && bodyStatus.equalsIgnoreCase("pending")){
-            if (withdrawal.getMedium().equalsIgnoreCase("balance")) {
-                newBalance = balance + dbAmount;
-                accountRepository.findById(accountId).get().setBalance(newBalance);
-            }
-            if (withdrawal.getMedium().equalsIgnoreCase("rewards")) {
-                newRewards = rewards + dbAmount.intValue();
-                accountRepository.findById(accountId).get().setRewards(newRewards);
-            }
-        }
-        if(!dbMedium.equalsIgnoreCase(bodyMedium) && !bodyStatus.equalsIgnoreCase(dbStatus) && bodyStatus.equalsIgnoreCase("pending")){
-            if (withdrawal.getMedium().equalsIgnoreCase("balance")) {
-                newRewards = rewards + dbAmount.intValue();
-                accountRepository.findById(accountId).get().setRewards(newRewards);
-            }
-            if (withdrawal.getMedium().equalsIgnoreCase("rewards")) {
-                newBalance = balance + dbAmount;
-                accountRepository.findById(accountId).get().setBalance(newBalance);
-            }
+        Withdrawal storedWithdrawal = lockWithdrawal(withdrawalId);
+        Long accountId = storedWithdrawal.getPayer_id();
+        WithdrawalEffect storedEffect = WithdrawalEffect.of(storedWithdrawal.getMedium(), storedWithdrawal.getStatus(), storedWithdrawal.getAmount());
+        WithdrawalEffect newEffect = WithdrawalEffect.of(withdrawal.getMedium(), withdrawal.getStatus(), withdrawal.getAmount());
+        WithdrawalEffect netEffect = newEffect.minus(storedEffect);
+        if (!netEffect.isNone()) {
+            applyEffect(accountId, netEffect, withdrawal.getAmount());
         }
-
+        withdrawal.setId(withdrawalId);
+        withdrawal.setPayer_id(accountId);
         withdrawal = withdrawalRepository.save(withdrawal);
     }
 
 
+    // an executed withdrawal is refunded when it is deleted, a pending one never took anything
+    @Transactional
     public void deleteWithdrawal(Long withdrawalId) {
-        verifyWithdrawalExists(withdrawalId);
-        Long accountId = withdrawalRepository.findById(withdrawalId).get().getPayer_id();
-        Double withdrawal = withdrawalRepository.findById(withdrawalId).get().getAmount();
-        if (withdrawalRepository.findById(withdrawalId).get().getMedium().equalsIgnoreCase("balance")) {
-            Double newAccountBalance = accountRepository.findById(accountId).get().getBalance() + withdrawal;
-            accountRepository.findById(accountId).get().setBalance(newAccountBalance);
-        }
-        if (withdrawalRepository.findById(withdrawalId).get().getMedium().equalsIgnoreCase("rewards")) {
-            Integer newRewardsBalance = accountRepository.findById(accountId).get().getRewards() + withdrawal.intValue();
-            accountRepository.findById(accountId).get().setRewards(newRewardsBalance);
+        Withdrawal storedWithdrawal = lockWithdrawal(withdrawalId);
+        WithdrawalEffect refund = WithdrawalEffect.of(storedWithdrawal.getMedium(), storedWithdrawal.getStatus(), storedWithdrawal.getAmount()).negate();
+        if (!refund.isNone()) {
+            applyEffect(storedWithdrawal.getPayer_id(), refund, storedWithdrawal.getAmount());
         }
-        withdrawalRepository.deleteById(withdrawalId);
+        withdrawalRepository.delete(storedWithdrawal);
+        entityLookup.forget(Withdrawal.class, withdrawalId);
     }
 
 
-    private void verifyAccountExists(Long accountId) throws ResourceNotFoundException {
-        Optional<Account> account = accountRepository.findById(accountId);
-        if (account.isEmpty()) {
-            throw new ResourceNotFoundException("Account with Id: " + accountId + " not found.");
-        }
+    // the row stays locked until the transaction ends, so a second update or delete reads the state this one leaves
+    // instead of applying its delta against the same stored withdrawal
+    private Withdrawal lockWithdrawal(Long withdrawalId) {
+        Withdrawal storedWithdrawal = withdrawalRepository.findForUpdateById(withdrawalId)
+                .orElseThrow(() -> new ResourceNotFoundException("Withdrawal with Id (" + withdrawalId + ") not found."));
+        entityLookup.forget(Withdrawal.class, withdrawalId);
+        return storedWithdrawal;
     }
 
-
-    public void verifyNotDeposit(TransactionType transactionType) {
-        if (transactionType.equals(TransactionType.DEPOSIT)) {
-            throw new TransactionMismatchException("Transaction type: " + transactionType.name() + " is not valid for this operation.");
+    private void applyEffect(Long accountId, WithdrawalEffect effect, Money withdrawalAmount) {
+        if (!accountBalanceLedger.adjust(accountId, effect.getBalanceDelta(), effect.getRewardsDelta())) {
+            throw insufficientFundsOrMissingAccount(accountId, withdrawalAmount);
         }
     }
 
-    public void verifyWithdrawalExists(Long withdrawalId) throws ResourceNotFoundException {
-        Optional<Withdrawal> withdrawal = withdrawalRepository.findById(withdrawalId);
-        if (withdrawal.isEmpty()) {
-            throw new ResourceNotFoundException("Withdrawal with Id: " + withdrawalId + " not found.");
+    // only reached once the conditional UPDATE has failed, so the extra read stays off the happy path;
+    // it reads the balance and rewards columns, not the cached account, so the reported values are current
+    private RuntimeException insufficientFundsOrMissingAccount(Long accountId, Money withdrawalAmount) {
+        List<Object[]> balanceAndRewards = accountRepository.findBalanceAndRewardsById(accountId);
+        if (balanceAndRewards.isEmpty()) {
+            return new ResourceNotFoundException("Account with Id (" + accountId + ") not found.");
         }
+        Object[] row = balanceAndRewards.get(0);
+        return new InsufficientFundsException("Insufficient funds in account for withdrawal transaction of: " + withdrawalAmount + ". Current account balance: "
+                + accountBalanceLedger.availableBalance(accountId, (Money) row[0]) + ", rewards: " + row[1] + ".");
     }
 
-    public void verifySufficientFunds(Long accountId, Double withdrawalAmount) {
-        Optional<Account> accountOptional = accountRepository.findById(accountId);
-        Account account = accountOptional.get();
-        Double accountBalance = account.getBalance();
-        if (accountBalance < withdrawalAmount) {
-            throw new InsufficientFundsException("Insufficient funds in account for deposit transaction of: " + withdrawalAmount + ". Current account balance: " + accountBalance + ".");
+
+    public void verifyNotDeposit(TransactionType transactionType) {
+        if (transactionType.equals(TransactionType.DEPOSIT)) {
+            throw new TransactionMismatchException("Transaction type: " + transactionType.name() + " is not valid for this operation.");
         }
     }
 }
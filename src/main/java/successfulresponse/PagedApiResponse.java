@@ -0,0 +1,25 @@
+package successfulresponse;
+
+import java.util.List;
+
+public class PagedApiResponse<T> extends ApiResponse<T> {
+
+    // id to pass as "after" to fetch the next page, null on the last page
+    private Long nextCursor;
+
+    public PagedApiResponse(int code, String message, List<T> data, Long nextCursor) {
+        super(code, message, data);
+        this.nextCursor = nextCursor;
+    }
+
+    public PagedApiResponse() {
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Long nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
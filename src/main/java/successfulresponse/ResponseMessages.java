@@ -0,0 +1,18 @@
+package successfulresponse;
+
+// Fixed messages of the single-entity GETs, the id is already in the returned item
+public final class ResponseMessages {
+
+    public static final String ACCOUNT_RETRIEVED = "Successfully fetched account";
+
+    public static final String CUSTOMER_RETRIEVED = "Success";
+
+    public static final String BILL_RETRIEVED = "Bill retrieved successfully.";
+
+    public static final String DEPOSIT_RETRIEVED = "Deposit retrieved successfully.";
+
+    public static final String WITHDRAWAL_RETRIEVED = "Withdrawal retrieved";
+
+    private ResponseMessages() {
+    }
+}
@@ -0,0 +1,229 @@
+package successfulresponse;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import domain.Account;
+import domain.Address;
+import domain.Bill;
+import domain.Customer;
+import domain.Deposit;
+import domain.Money;
+import domain.Withdrawal;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+// Hand written serializers for the entities the API returns. Each one writes the same properties, in the same
+// order, as Jackson's bean serializer would, without going through the reflective property writers.
+// Money is written as its decimal amount, dates as yyyy-MM-dd and enums by name, nulls are kept.
+// Amounts and dates are formatted into a per-thread buffer, so writing them creates no BigDecimal or String.
+public final class ResponseSerializers {
+
+    // the longest value is Long.MIN_VALUE cents, 19 digits, a sign and a decimal point
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[24]);
+
+    private ResponseSerializers() {
+    }
+
+
+    public static class SingleApiResponseSerializer extends StdSerializer<SingleApiResponse<?>> {
+
+        public SingleApiResponseSerializer() {
+            super(SingleApiResponse.class, false);
+        }
+
+        @Override
+        public void serialize(SingleApiResponse<?> response, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeStartObject();
+            gen.writeNumberField("code", response.getCode());
+            gen.writeStringField("message", response.getMessage());
+            gen.writeFieldName("data");
+            gen.writeStartArray();
+            serializers.defaultSerializeValue(response.getItem(), gen);
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+    }
+
+    public static class AccountSerializer extends JsonSerializer<Account> {
+
+        @Override
+        public void serialize(Account account, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeStartObject();
+            writeLong(gen, "id", account.getId());
+            writeEnum(gen, "type", account.getType());
+            gen.writeStringField("nickname", account.getNickname());
+            writeInteger(gen, "rewards", account.getRewards());
+            writeMoney(gen, "balance", account.getBalance());
+            writeLong(gen, "customerId", account.getCustomerId());
+            writeLong(gen, "version", account.getVersion());
+            gen.writeEndObject();
+        }
+    }
+
+    public static class DepositSerializer extends JsonSerializer<Deposit> {
+
+        @Override
+        public void serialize(Deposit deposit, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeStartObject();
+            writeLong(gen, "depositId", deposit.getDepositId());
+            writeEnum(gen, "type", deposit.getType());
+            writeDate(gen, "transactionDate", deposit.getTransactionDate());
+            writeEnum(gen, "status", deposit.getStatus());
+            writeLong(gen, "payee_id", deposit.getPayee_id());
+            writeEnum(gen, "medium", deposit.getMedium());
+            writeMoney(gen, "amount", deposit.getAmount());
+            gen.writeStringField("description", deposit.getDescription());
+            writeLong(gen, "accountId", deposit.getAccountId());
+            writeLong(gen, "version", deposit.getVersion());
+            gen.writeEndObject();
+        }
+    }
+
+    public static class BillSerializer extends JsonSerializer<Bill> {
+
+        @Override
+        public void serialize(Bill bill, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeStartObject();
+            writeLong(gen, "id", bill.getId());
+            writeEnum(gen, "status", bill.getStatus());
+            gen.writeStringField("payee", bill.getPayee());
+            gen.writeStringField("nickname", bill.getNickname());
+            writeDate(gen, "creationDate", bill.getCreationDate());
+            gen.writeStringField("paymentDate", bill.getPaymentDate());
+            writeInteger(gen, "recurringDate", bill.getRecurringDate());
+            writeDate(gen, "upcomingPaymentDate", bill.getUpcomingPaymentDate());
+            writeMoney(gen, "paymentAmount", bill.getPaymentAmount());
+            writeLong(gen, "accountId", bill.getAccountId());
+            writeLong(gen, "version", bill.getVersion());
+            gen.writeEndObject();
+        }
+    }
+
+    public static class WithdrawalSerializer extends JsonSerializer<Withdrawal> {
+
+        @Override
+        public void serialize(Withdrawal withdrawal, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeStartObject();
+            writeLong(gen, "id", withdrawal.getId());
+            writeEnum(gen, "type", withdrawal.getType());
+            writeDate(gen, "transaction_Date", withdrawal.getTransaction_Date());
+            writeEnum(gen, "status", withdrawal.getStatus());
+            writeLong(gen, "payer_id", withdrawal.getPayer_id());
+            writeEnum(gen, "medium", withdrawal.getMedium());
+            writeMoney(gen, "amount", withdrawal.getAmount());
+            gen.writeStringField("description", withdrawal.getDescription());
+            gen.writeEndObject();
+        }
+    }
+
+    public static class CustomerSerializer extends JsonSerializer<Customer> {
+
+        @Override
+        public void serialize(Customer customer, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeStartObject();
+            writeLong(gen, "id", customer.getId());
+            gen.writeStringField("firstName", customer.getFirstName());
+            gen.writeStringField("lastName", customer.getLastName());
+            gen.writeFieldName("address");
+            if (customer.getAddress() == null) {
+                gen.writeNull();
+            } else {
+                gen.writeStartArray();
+                for (Address address : customer.getAddress()) {
+                    writeAddress(gen, address);
+                }
+                gen.writeEndArray();
+            }
+            writeLong(gen, "version", customer.getVersion());
+            gen.writeEndObject();
+        }
+    }
+
+
+    private static void writeAddress(JsonGenerator gen, Address address) throws IOException {
+        gen.writeStartObject();
+        writeLong(gen, "id", address.getId());
+        gen.writeStringField("street_number", address.getStreet_number());
+        gen.writeStringField("street_name", address.getStreet_name());
+        gen.writeStringField("city", address.getCity());
+        gen.writeStringField("state", address.getState());
+        gen.writeStringField("zip", address.getZip());
+        gen.writeEndObject();
+    }
+
+    private static void writeLong(JsonGenerator gen, String name, Long value) throws IOException {
+        if (value == null) {
+            gen.writeNullField(name);
+        } else {
+            gen.writeNumberField(name, value.longValue());
+        }
+    }
+
+    private static void writeInteger(JsonGenerator gen, String name, Integer value) throws IOException {
+        if (value == null) {
+            gen.writeNullField(name);
+        } else {
+            gen.writeNumberField(name, value.intValue());
+        }
+    }
+
+    private static void writeMoney(JsonGenerator gen, String name, Money value) throws IOException {
+        if (value == null) {
+            gen.writeNullField(name);
+            return;
+        }
+
+        // digits are written backwards from the end of the buffer; the amount is kept negative so that
+        // Long.MIN_VALUE cents need no special case
+        char[] buffer = BUFFER.get();
+        int start = buffer.length;
+        long remaining = value.minorUnits() < 0 ? value.minorUnits() : -value.minorUnits();
+        for (int i = 0; i < Money.SCALE; i++) {
+            buffer[--start] = (char) ('0' - remaining % 10);
+            remaining /= 10;
+        }
+        buffer[--start] = '.';
+        do {
+            buffer[--start] = (char) ('0' - remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0);
+        if (value.minorUnits() < 0) {
+            buffer[--start] = '-';
+        }
+
+        gen.writeFieldName(name);
+        gen.writeNumber(buffer, start, buffer.length - start);
+    }
+
+    private static void writeDate(JsonGenerator gen, String name, LocalDate value) throws IOException {
+        // LocalDate.toString() adds a sign outside of years 0 to 9999
+        if (value == null || value.getYear() < 0 || value.getYear() > 9999) {
+            gen.writeStringField(name, value == null ? null : value.toString());
+            return;
+        }
+
+        char[] buffer = BUFFER.get();
+        writeDigits(buffer, 0, value.getYear(), 4);
+        buffer[4] = '-';
+        writeDigits(buffer, 5, value.getMonthValue(), 2);
+        buffer[7] = '-';
+        writeDigits(buffer, 8, value.getDayOfMonth(), 2);
+
+        gen.writeFieldName(name);
+        gen.writeString(buffer, 0, 10);
+    }
+
+    private static void writeDigits(char[] buffer, int offset, int value, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static void writeEnum(JsonGenerator gen, String name, Enum<?> value) throws IOException {
+        gen.writeStringField(name, value == null ? null : value.name());
+    }
+}
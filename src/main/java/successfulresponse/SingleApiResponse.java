@@ -0,0 +1,34 @@
+package successfulresponse;
+
+import java.util.List;
+
+// Envelope for a response with exactly one item. On the wire it is the same as an ApiResponse with a one
+// element data list, but the item is written straight into the data array without building a list first.
+public class SingleApiResponse<T> {
+
+    private final int code;
+    private final String message;
+    private final T item;
+
+    public SingleApiResponse(int code, String message, T item) {
+        this.code = code;
+        this.message = message;
+        this.item = item;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public T getItem() {
+        return item;
+    }
+
+    public List<T> getData() {
+        return List.of(item);
+    }
+}
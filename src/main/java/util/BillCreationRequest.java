@@ -2,6 +2,7 @@ package util;
 
 
 
+import domain.Money;
 import domain.enums.BillStatus;
 import jakarta.validation.constraints.*;
 
@@ -23,7 +24,7 @@ public class BillCreationRequest {
 
     @Positive
     @NotNull
-    private Double paymentAmount;
+    private Money paymentAmount;
 
     @NotNull
     private Long accountId;
@@ -60,11 +61,11 @@ public class BillCreationRequest {
         this.recurringDate = recurringDate;
     }
 
-    public Double getPaymentAmount() {
+    public Money getPaymentAmount() {
         return paymentAmount;
     }
 
-    public void setPaymentAmount(Double paymentAmount) {
+    public void setPaymentAmount(Money paymentAmount) {
         this.paymentAmount = paymentAmount;
     }
 
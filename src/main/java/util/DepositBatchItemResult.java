@@ -0,0 +1,56 @@
+package util;
+
+
+public class DepositBatchItemResult {
+
+    // position of the request in the submitted batch
+    private int index;
+
+    private int code;
+
+    private String message;
+
+    private Long depositId;
+
+    public DepositBatchItemResult() {
+    }
+
+    public DepositBatchItemResult(int index, int code, String message, Long depositId) {
+        this.index = index;
+        this.code = code;
+        this.message = message;
+        this.depositId = depositId;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public void setCode(int code) {
+        this.code = code;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public Long getDepositId() {
+        return depositId;
+    }
+
+    public void setDepositId(Long depositId) {
+        this.depositId = depositId;
+    }
+}
@@ -1,6 +1,7 @@
 package util;
 
 
+import domain.Money;
 import domain.enums.Medium;
 import domain.enums.TransactionType;
 import jakarta.validation.constraints.NotNull;
@@ -18,7 +19,7 @@ public class DepositCreationRequest {
 
     @Positive
     @NotNull
-    private Double depositAmount;
+    private Money depositAmount;
 
     private String depositDescription;
 
@@ -46,11 +47,11 @@ public class DepositCreationRequest {
         this.depositMedium = depositMedium;
     }
 
-    public Double getDepositAmount() {
+    public Money getDepositAmount() {
         return depositAmount;
     }
 
-    public void setDepositAmount(Double depositAmount) {
+    public void setDepositAmount(Money depositAmount) {
         this.depositAmount = depositAmount;
     }
 
@@ -0,0 +1,47 @@
+package util;
+
+
+import domain.enums.ProcessingState;
+
+public class DepositProcessingStatus {
+
+    private Long depositId;
+
+    private ProcessingState state;
+
+    // why processing failed, null otherwise
+    private String message;
+
+    public DepositProcessingStatus() {
+    }
+
+    public DepositProcessingStatus(Long depositId, ProcessingState state, String message) {
+        this.depositId = depositId;
+        this.state = state;
+        this.message = message;
+    }
+
+    public Long getDepositId() {
+        return depositId;
+    }
+
+    public void setDepositId(Long depositId) {
+        this.depositId = depositId;
+    }
+
+    public ProcessingState getState() {
+        return state;
+    }
+
+    public void setState(ProcessingState state) {
+        this.state = state;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,33 @@
+package util;
+
+
+import exceptions.InvalidInputException;
+
+public final class PageLimits {
+
+    public static final int DEFAULT_LIMIT = 100;
+
+    public static final int MAX_LIMIT = 1000;
+
+    private PageLimits() {
+    }
+
+    // resolves the requested page size, falling back to the default when none is given
+    public static int resolve(Integer limit) {
+
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new InvalidInputException("Page limit (" + limit + ") must be between 1 and " + MAX_LIMIT + ".");
+        }
+
+        return limit;
+    }
+
+    // keyset cursors start below the smallest generated id
+    public static long resolveCursor(Long after) {
+        return after == null ? 0L : after;
+    }
+}
@@ -0,0 +1,91 @@
+package util;
+
+
+import exceptions.InvalidInputException;
+
+import java.time.LocalDate;
+import java.time.Year;
+import java.util.Arrays;
+
+// Next due date of a recurring bill: its recurring day in the month after a given date, or that month's
+// last day when the month is shorter (the 31st becomes the 30th, or the 28th/29th in February).
+// Month lengths come from a table, so no date is ever built and rejected.
+public final class RecurringDateCalendar {
+
+    public static final int MIN_RECURRING_DAY = 1;
+
+    public static final int MAX_RECURRING_DAY = 31;
+
+    // [leap year ? 1 : 0][month - 1]
+    private static final int[][] MONTH_LENGTHS = {
+            {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31},
+            {31, 29, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31}
+    };
+
+    private RecurringDateCalendar() {
+    }
+
+    public static int lengthOfMonth(int year, int month) {
+        return MONTH_LENGTHS[Year.isLeap(year) ? 1 : 0][month - 1];
+    }
+
+    // the day of the given month a bill recurring on recurringDay is due
+    public static int dueDayOfMonth(int year, int month, int recurringDay) {
+        return Math.min(verifyRecurringDay(recurringDay), lengthOfMonth(year, month));
+    }
+
+    public static LocalDate nextDueDate(LocalDate after, int recurringDay) {
+
+        int year = after.getMonthValue() == 12 ? after.getYear() + 1 : after.getYear();
+        int month = after.getMonthValue() == 12 ? 1 : after.getMonthValue() + 1;
+
+        return LocalDate.of(year, month, dueDayOfMonth(year, month, recurringDay));
+    }
+
+    // the first due date that is not before the given date, in its month or the one after
+    public static LocalDate dueDateOnOrAfter(LocalDate from, int recurringDay) {
+
+        LocalDate dueDate = LocalDate.of(from.getYear(), from.getMonthValue(), dueDayOfMonth(from.getYear(), from.getMonthValue(), recurringDay));
+        return dueDate.isBefore(from) ? nextDueDate(from, recurringDay) : dueDate;
+    }
+
+    // nextDueDate for many bills at once; consecutive bills in the same month share one set of due dates,
+    // so a run over bills that were all due in the same month builds at most 31 dates
+    public static LocalDate[] nextDueDates(LocalDate[] after, int[] recurringDays) {
+
+        if (after.length != recurringDays.length) {
+            throw new InvalidInputException("Expected one recurring day per date, got " + recurringDays.length + " for " + after.length + " dates.");
+        }
+
+        LocalDate[] dueDates = new LocalDate[after.length];
+        LocalDate[] monthDueDates = new LocalDate[MAX_RECURRING_DAY + 1];
+        int cachedYear = 0;
+        int cachedMonth = 0;
+
+        for (int i = 0; i < after.length; i++) {
+            int year = after[i].getMonthValue() == 12 ? after[i].getYear() + 1 : after[i].getYear();
+            int month = after[i].getMonthValue() == 12 ? 1 : after[i].getMonthValue() + 1;
+
+            if (year != cachedYear || month != cachedMonth) {
+                Arrays.fill(monthDueDates, null);
+                cachedYear = year;
+                cachedMonth = month;
+            }
+
+            int recurringDay = verifyRecurringDay(recurringDays[i]);
+            if (monthDueDates[recurringDay] == null) {
+                monthDueDates[recurringDay] = LocalDate.of(year, month, Math.min(recurringDay, lengthOfMonth(year, month)));
+            }
+            dueDates[i] = monthDueDates[recurringDay];
+        }
+        return dueDates;
+    }
+
+    private static int verifyRecurringDay(int recurringDay) {
+
+        if (recurringDay < MIN_RECURRING_DAY || recurringDay > MAX_RECURRING_DAY) {
+            throw new InvalidInputException("Recurring date (" + recurringDay + ") must be between " + MIN_RECURRING_DAY + " and " + MAX_RECURRING_DAY + ".");
+        }
+        return recurringDay;
+    }
+}
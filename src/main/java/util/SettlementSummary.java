@@ -0,0 +1,53 @@
+package util;
+
+
+public class SettlementSummary {
+
+    private int depositsScanned;
+
+    private int depositsSettled;
+
+    // deposits left pending because an account is missing, funds are short or a partition was rolled back
+    private int depositsSkipped;
+
+    private int accountsUpdated;
+
+    public int getDepositsScanned() {
+        return depositsScanned;
+    }
+
+    public void setDepositsScanned(int depositsScanned) {
+        this.depositsScanned = depositsScanned;
+    }
+
+    public int getDepositsSettled() {
+        return depositsSettled;
+    }
+
+    public void setDepositsSettled(int depositsSettled) {
+        this.depositsSettled = depositsSettled;
+    }
+
+    public int getDepositsSkipped() {
+        return depositsSkipped;
+    }
+
+    public void setDepositsSkipped(int depositsSkipped) {
+        this.depositsSkipped = depositsSkipped;
+    }
+
+    public int getAccountsUpdated() {
+        return accountsUpdated;
+    }
+
+    public void setAccountsUpdated(int accountsUpdated) {
+        this.accountsUpdated = accountsUpdated;
+    }
+
+    public void add(SettlementSummary other) {
+        this.depositsScanned += other.depositsScanned;
+        this.depositsSettled += other.depositsSettled;
+        this.depositsSkipped += other.depositsSkipped;
+        this.accountsUpdated += other.accountsUpdated;
+    }
+}
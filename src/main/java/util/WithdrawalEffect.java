@@ -0,0 +1,71 @@
+package util;
+
+
+import domain.Money;
+import domain.enums.Medium;
+import domain.enums.WithdrawalStatus;
+import exceptions.InvalidInputException;
+
+// What a withdrawal in a given (medium, status, amount) state has taken out of its account.
+// Only executed withdrawals take anything, so every transition is the new effect minus the old one.
+public class WithdrawalEffect {
+
+    public static final WithdrawalEffect NONE = new WithdrawalEffect(0L, 0);
+
+    // in cents
+    private final long balanceDelta;
+
+    private final int rewardsDelta;
+
+    private WithdrawalEffect(long balanceDelta, int rewardsDelta) {
+        this.balanceDelta = balanceDelta;
+        this.rewardsDelta = rewardsDelta;
+    }
+
+    public static WithdrawalEffect of(Medium medium, WithdrawalStatus status, Money amount) {
+
+        if (status == null) {
+            throw new InvalidInputException("Withdrawal status is required.");
+        }
+        if (status == WithdrawalStatus.PENDING) {
+            return NONE;
+        }
+        if (medium == null || amount == null) {
+            throw new InvalidInputException("Withdrawal medium and amount are required.");
+        }
+        // rewards are whole points, the amount is truncated like it always was
+        return medium == Medium.BALANCE ? new WithdrawalEffect(-amount.minorUnits(), 0) : new WithdrawalEffect(0L, -amount.intValue());
+    }
+
+    // net change to apply when a withdrawal moves from the "from" state to this one
+    public WithdrawalEffect minus(WithdrawalEffect from) {
+        return new WithdrawalEffect(Money.subtract(balanceDelta, from.balanceDelta), rewardsDelta - from.rewardsDelta);
+    }
+
+    public WithdrawalEffect negate() {
+        return NONE.minus(this);
+    }
+
+    public boolean isNone() {
+        return balanceDelta == 0 && rewardsDelta == 0;
+    }
+
+    public long getBalanceDelta() {
+        return balanceDelta;
+    }
+
+    public int getRewardsDelta() {
+        return rewardsDelta;
+    }
+
+    // lenient parsing for the status query parameter, request bodies are bound by Jackson
+    public static WithdrawalStatus parseStatus(String status) {
+
+        for (WithdrawalStatus value : WithdrawalStatus.values()) {
+            if (value.name().equalsIgnoreCase(status)) {
+                return value;
+            }
+        }
+        throw new InvalidInputException("Withdrawal status (" + status + ") is not valid.");
+    }
+}
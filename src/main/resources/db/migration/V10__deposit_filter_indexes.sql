@@ -0,0 +1,7 @@
+-- Filtered deposit listing narrows one account by date range or status. InnoDB appends deposit_id
+-- to both indexes, so a status filter also pages on deposit_id without a sort.
+-- idx_deposit_account_id stays for the unfiltered listing, which pages on deposit_id alone.
+
+create index idx_deposit_account_date on deposit (account_id, transaction_date);
+
+create index idx_deposit_account_status on deposit (account_id, deposit_status);
@@ -0,0 +1,4 @@
+-- The bill payment scheduler loads every recurring bill at startup, paging on id.
+-- InnoDB appends id to the secondary index, so each page is a range scan.
+
+create index idx_bill_status on bill (status);
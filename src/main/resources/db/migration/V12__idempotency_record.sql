@@ -0,0 +1,13 @@
+-- Responses of POST deposits and withdrawals sent with an Idempotency-Key header.
+-- Rows older than the retention window are purged by created_at.
+
+create table idempotency_record (
+    status_code integer not null,
+    created_at datetime(6) not null,
+    request_hash varchar(64) not null,
+    idempotency_key varchar(512) not null,
+    response_body text,
+    primary key (idempotency_key)
+) engine=InnoDB;
+
+create index idx_idempotency_record_created_at on idempotency_record (created_at);
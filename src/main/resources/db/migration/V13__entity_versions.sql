@@ -0,0 +1,8 @@
+-- Optimistic locking versions for Customer, Bill and Deposit, also used as their ETags.
+-- The native bulk updates of bills and deposits bump them as well.
+
+alter table customer add column customer_version bigint not null default 0;
+
+alter table bill add column version bigint not null default 0;
+
+alter table deposit add column deposit_version bigint not null default 0;
@@ -0,0 +1,98 @@
+-- Schema as previously generated by spring.jpa.hibernate.ddl-auto=update.
+-- Existing databases are baselined at this version and skip this script.
+
+create table account (
+    account_balance float(53),
+    account_rewards integer,
+    account_id bigint not null auto_increment,
+    customer_id bigint not null,
+    account_nickname varchar(20) not null,
+    account_type enum ('CHECKING','CREDIT','SAVINGS') not null,
+    primary key (account_id)
+) engine=InnoDB;
+
+create table customer (
+    customer_id bigint not null,
+    first_name varchar(255) not null,
+    last_name varchar(255) not null,
+    primary key (customer_id)
+) engine=InnoDB;
+
+create table customer_seq (
+    next_val bigint
+) engine=InnoDB;
+
+insert into customer_seq values ( 1 );
+
+create table address (
+    address_id bigint not null,
+    customer_id bigint,
+    city varchar(255) not null,
+    state varchar(255) not null,
+    street_name varchar(255) not null,
+    street_number varchar(255) not null,
+    zip varchar(255) not null,
+    primary key (address_id)
+) engine=InnoDB;
+
+create table address_seq (
+    next_val bigint
+) engine=InnoDB;
+
+insert into address_seq values ( 1 );
+
+alter table address
+    add constraint FK93c3js0e22ll1xlu21nvrhqgg
+    foreign key (customer_id)
+    references customer (customer_id);
+
+create table bill (
+    payment_amount float(53) not null,
+    recurring_date integer,
+    account_id bigint not null,
+    id bigint not null auto_increment,
+    creation_date varchar(255) not null,
+    nickname varchar(255) not null,
+    payee varchar(255) not null,
+    payment_date varchar(255) not null,
+    status varchar(255) not null,
+    upcoming_payment_date varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table deposit (
+    deposit_amount float(53) not null,
+    account_id bigint not null,
+    deposit_id bigint not null,
+    deposit_payee_id bigint,
+    deposit_description varchar(255),
+    deposit_medium varchar(255) not null,
+    deposit_status varchar(255) not null,
+    deposit_type varchar(255) not null,
+    transaction_date varchar(255) not null,
+    primary key (deposit_id)
+) engine=InnoDB;
+
+create table deposit_seq (
+    next_val bigint
+) engine=InnoDB;
+
+insert into deposit_seq values ( 1 );
+
+create table withdrawal (
+    amount float(53) not null,
+    type tinyint not null,
+    id bigint not null,
+    payer_id bigint not null,
+    description varchar(255),
+    medium varchar(255) not null,
+    status varchar(255) not null,
+    transaction_date varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table withdrawal_seq (
+    next_val bigint
+) engine=InnoDB;
+
+insert into withdrawal_seq values ( 1 );
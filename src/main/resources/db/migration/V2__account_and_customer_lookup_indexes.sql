@@ -0,0 +1,9 @@
+-- Secondary indexes for the per-customer and per-account lookups in the repositories.
+-- InnoDB appends the primary key to every secondary index, so account(customer_id)
+-- also covers the ACCOUNT_ID side of the bill-by-customer join.
+
+create index idx_account_customer_id on account (customer_id);
+
+create index idx_bill_account_id on bill (account_id);
+
+create index idx_deposit_account_id on deposit (account_id);
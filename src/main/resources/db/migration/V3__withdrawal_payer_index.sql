@@ -0,0 +1,4 @@
+-- Account-scoped withdrawal listing filters on payer_id and pages on id,
+-- which InnoDB already appends to the secondary index.
+
+create index idx_withdrawal_payer_id on withdrawal (payer_id);
@@ -0,0 +1,23 @@
+-- Ids are now allocated in blocks of 1000 from table-backed sequences so inserts can be batched.
+-- Hibernate's pooled optimizer hands out (next_val - 999) .. next_val for each value it reads,
+-- so every sequence is moved at least one full block past the ids already in use.
+
+create table account_seq (
+    next_val bigint
+) engine=InnoDB;
+
+insert into account_seq select coalesce(max(account_id), 0) + 1000 from account;
+
+create table bill_seq (
+    next_val bigint
+) engine=InnoDB;
+
+insert into bill_seq select coalesce(max(id), 0) + 1000 from bill;
+
+update customer_seq set next_val = greatest(next_val, (select coalesce(max(customer_id), 0) from customer)) + 1000;
+
+update address_seq set next_val = greatest(next_val, (select coalesce(max(address_id), 0) from address)) + 1000;
+
+update deposit_seq set next_val = greatest(next_val, (select coalesce(max(deposit_id), 0) from deposit)) + 1000;
+
+update withdrawal_seq set next_val = greatest(next_val, (select coalesce(max(id), 0) from withdrawal)) + 1000;
@@ -0,0 +1,3 @@
+-- The settlement engine pages through pending deposits by status and deposit_id.
+
+create index idx_deposit_status on deposit (deposit_status);
@@ -0,0 +1,3 @@
+-- Optimistic locking version for Account. The balance delta updates bump it as well.
+
+alter table account add column account_version bigint not null default 0;
@@ -0,0 +1,9 @@
+-- Striped sub-balances for hot payee accounts. An account with slot rows takes credits
+-- on one of its slots instead of the ACCOUNT row; its balance is the row plus all slots.
+
+create table account_balance_slot (
+    account_id bigint not null,
+    slot_no integer not null,
+    slot_balance float(53) not null default 0,
+    primary key (account_id, slot_no)
+) engine=InnoDB;
@@ -0,0 +1,17 @@
+-- Money columns move from float(53) to a bigint count of cents (see domain.Money).
+-- Values are rounded to the nearest cent first, so the type change itself is exact.
+
+update account set account_balance = round(account_balance * 100) where account_balance is not null;
+alter table account modify account_balance bigint;
+
+update account_balance_slot set slot_balance = round(slot_balance * 100);
+alter table account_balance_slot modify slot_balance bigint not null default 0;
+
+update bill set payment_amount = round(payment_amount * 100);
+alter table bill modify payment_amount bigint not null;
+
+update deposit set deposit_amount = round(deposit_amount * 100);
+alter table deposit modify deposit_amount bigint not null;
+
+update withdrawal set amount = round(amount * 100);
+alter table withdrawal modify amount bigint not null;
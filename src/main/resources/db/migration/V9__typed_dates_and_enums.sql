@@ -0,0 +1,26 @@
+-- Dates move from varchar to date and status/type/medium columns to MySQL enums, as mapped by Hibernate.
+-- Existing values are normalised to the enum names first, so every alter converts in place.
+
+update deposit set deposit_type = upper(deposit_type), deposit_status = upper(deposit_status), deposit_medium = upper(deposit_medium);
+alter table deposit
+    modify deposit_type enum ('DEPOSIT','P2P','WITHDRAWAL') not null,
+    modify deposit_status enum ('CANCELLED','COMPLETED','PENDING') not null,
+    modify deposit_medium enum ('BALANCE','REWARDS') not null,
+    modify transaction_date date not null;
+
+-- withdrawals that never set a date carried free text, they fall back to the entity default
+update withdrawal set status = upper(status), medium = upper(medium);
+update withdrawal set transaction_date = '2017-07-25' where transaction_date not regexp '^[0-9]{4}-[0-9]{2}-[0-9]{2}$';
+alter table withdrawal
+    modify status enum ('EXECUTED','PENDING') not null,
+    modify medium enum ('BALANCE','REWARDS') not null,
+    modify transaction_date date not null;
+
+-- cancelled bills stored a message instead of an upcoming payment date
+update bill set status = upper(status);
+update bill set status = 'CANCELLED' where status = 'CANCELED';
+update bill set upcoming_payment_date = null where upcoming_payment_date not regexp '^[0-9]{4}-[0-9]{2}-[0-9]{2}$';
+alter table bill
+    modify status enum ('CANCELLED','COMPLETED','PENDING','RECURRING') not null,
+    modify creation_date date not null,
+    modify upcoming_payment_date date;
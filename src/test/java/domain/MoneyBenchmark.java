@@ -0,0 +1,75 @@
+package domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// One account's balance carried through 1000 deposit amounts as a boxed Double, as Money and as raw cents
+// (Money.add). The settlement loop itself is measured by service.DepositSettlementBenchmark.
+// Run with -prof gc for the allocations per run.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MoneyBenchmark {
+
+    private static final int DEPOSITS = 1000;
+
+    // the amounts are boxed up front, as the entities held them
+    private final Double[] amounts = new Double[DEPOSITS];
+
+    private final Money[] amountsInCents = new Money[DEPOSITS];
+
+
+    @Setup(Level.Trial)
+    public void createDeposits() {
+        Random random = new Random(42);
+        for (int i = 0; i < DEPOSITS; i++) {
+            long amount = random.nextLong(100_000) + 1;
+            amounts[i] = amount / 100.0;
+            amountsInCents[i] = Money.ofMinorUnits(amount);
+        }
+    }
+
+
+    // one account's balance carried through every deposit, as Account.setBalance(getBalance() + amount) did
+    @Benchmark
+    public Double runningBalanceWithDoubles() {
+        Double balance = 0.0;
+        for (int i = 0; i < DEPOSITS; i++) {
+            balance = balance + amounts[i];
+        }
+        return balance;
+    }
+
+    @Benchmark
+    public Money runningBalanceWithMoney() {
+        Money balance = Money.ZERO;
+        for (int i = 0; i < DEPOSITS; i++) {
+            balance = balance.plus(amountsInCents[i]);
+        }
+        return balance;
+    }
+
+    @Benchmark
+    public long runningBalanceWithMinorUnits() {
+        long balance = 0L;
+        for (int i = 0; i < DEPOSITS; i++) {
+            balance = Money.add(balance, amountsInCents[i].minorUnits());
+        }
+        return balance;
+    }
+}
@@ -0,0 +1,88 @@
+package repository;
+
+import domain.Account;
+import domain.Bill;
+import domain.Money;
+import domain.enums.AccountType;
+import domain.enums.BillStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import testconfig.H2TestContext;
+import testconfig.JpaTestConfiguration;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(showSql = false, properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ContextConfiguration(classes = JpaTestConfiguration.class)
+@TestPropertySource(locations = "classpath:" + H2TestContext.PROPERTIES)
+class BillRepositoryTest {
+
+    private static final Long CUSTOMER_ID = 1L;
+
+    private static final Long OTHER_CUSTOMER_ID = 2L;
+
+    @Autowired
+    private BillRepository billRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 200})
+    void findAllByCustomerIdIsOneStatementForAnyNumberOfAccounts(int accounts) {
+        for (int i = 0; i < accounts; i++) {
+            Long accountId = persistAccount(CUSTOMER_ID);
+            persistBill(accountId);
+            persistBill(accountId);
+        }
+        persistBill(persistAccount(OTHER_CUSTOMER_ID));
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<Bill> bills = billRepository.findAllByCustomerId(CUSTOMER_ID);
+
+        assertEquals(accounts * 2, bills.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    private Long persistAccount(Long customerId) {
+        Account account = new Account();
+        account.setType(AccountType.CHECKING);
+        account.setNickname("account");
+        account.setRewards(0);
+        account.setBalance(Money.ZERO);
+        account.setCustomerId(customerId);
+        entityManager.persist(account);
+        return account.getId();
+    }
+
+    private void persistBill(Long accountId) {
+        Bill bill = new Bill();
+        bill.setStatus(BillStatus.PENDING);
+        bill.setPayee("payee");
+        bill.setNickname("bill");
+        bill.setCreationDate(LocalDate.of(2024, 1, 1));
+        bill.setPaymentDate("Awaiting payment.");
+        bill.setPaymentAmount(Money.of("10.00"));
+        bill.setAccountId(accountId);
+        entityManager.persist(bill);
+    }
+}
@@ -0,0 +1,120 @@
+package repository;
+
+import domain.Deposit;
+import domain.Money;
+import domain.enums.DepositStatus;
+import domain.enums.Medium;
+import domain.enums.TransactionType;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.h2.tools.Server;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import testconfig.H2TestContext;
+import testconfig.JpaTestConfiguration;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Deposits inserted per second through DepositRepository.saveAll, 1000 per transaction like a chunk of
+// POST /accounts/{accountId}/deposits/batch. "before" reads every id from its own sequence call and sends one
+// INSERT per deposit; "after" is the application's mapping and settings, pooled ids and JDBC batches of 1000.
+// The schema is created from the entities on an in-memory H2 database (see h2-test.properties) that is reached
+// over a loopback TCP connection, so every statement is a round trip as it is to MySQL.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 4)
+@Measurement(iterations = 5, time = 2)
+public class DepositInsertBenchmark {
+
+    private static final int DEPOSITS_PER_TRANSACTION = 1000;
+
+    @Param({"before", "after"})
+    private String mapping;
+
+    private Server server;
+
+    private ConfigurableApplicationContext context;
+
+    private DepositRepository depositRepository;
+
+    private TransactionTemplate transactionTemplate;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+
+
+    @Setup(Level.Trial)
+    public void start() throws SQLException {
+        server = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+        List<String> args = new ArrayList<>(List.of("--spring.jpa.properties.hibernate.generate_statistics=true"));
+        if (mapping.equals("before")) {
+            args.add("--spring.jpa.mapping-resources=benchmark/deposit-ids-one-at-a-time.xml");
+            args.add("--spring.jpa.properties.hibernate.jdbc.batch_size=0");
+            args.add("--spring.jpa.properties.hibernate.order_inserts=false");
+        }
+        context = H2TestContext.start(JpaTestConfiguration.class, "jdbc:h2:tcp://localhost:" + server.getPort() + "/mem:deposit-insert",
+                args.toArray(String[]::new));
+        depositRepository = context.getBean(DepositRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+    }
+
+    // keeps the table the same size for every iteration
+    @Setup(Level.Iteration)
+    public void emptyTable() {
+        jdbcTemplate.execute("TRUNCATE TABLE DEPOSIT");
+    }
+
+    // H2 runs in process, so the statements each transaction sends say more about a networked database than the time
+    @TearDown(Level.Trial)
+    public void close() {
+        System.out.println("JDBC statements per " + DEPOSITS_PER_TRANSACTION + " deposits: "
+                + statistics.getPrepareStatementCount() * DEPOSITS_PER_TRANSACTION / statistics.getEntityInsertCount());
+        context.close();
+        server.stop();
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation(DEPOSITS_PER_TRANSACTION)
+    public void saveDeposits() {
+        List<Deposit> deposits = new ArrayList<>(DEPOSITS_PER_TRANSACTION);
+        for (int i = 0; i < DEPOSITS_PER_TRANSACTION; i++) {
+            Deposit deposit = new Deposit();
+            deposit.setType(TransactionType.DEPOSIT);
+            deposit.setTransactionDate(LocalDate.of(2024, 1, 15));
+            deposit.setStatus(DepositStatus.PENDING);
+            deposit.setMedium(Medium.BALANCE);
+            deposit.setAmount(Money.ofMinorUnits(1000 + i));
+            deposit.setDescription("Payroll");
+            deposit.setAccountId((long) (i % 100) + 1);
+            deposits.add(deposit);
+        }
+        transactionTemplate.executeWithoutResult(status -> depositRepository.saveAll(deposits));
+    }
+}
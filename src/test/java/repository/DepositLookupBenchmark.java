@@ -0,0 +1,117 @@
+package repository;
+
+import domain.Deposit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import testconfig.H2TestContext;
+import testconfig.JpaTestConfiguration;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Latency of one page of an account's deposits (GET /accounts/{accountId}/deposits) with and without the
+// deposit indexes of the Flyway migrations. The table is created from the entities on a file backed H2 database
+// (see h2-test.properties) and only the migrations' CREATE INDEX ON deposit statements are replayed. Every account holds about 100 deposits, spread over the whole table.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DepositLookupBenchmark {
+
+    private static final int DEPOSITS_PER_ACCOUNT = 100;
+
+    private static final int PAGE_LIMIT = 50;
+
+    @Param({"1000000"})
+    private int rows;
+
+    @Param({"false", "true"})
+    private boolean indexed;
+
+    private ConfigurableApplicationContext context;
+
+    private DepositRepository depositRepository;
+
+    private int accounts;
+
+
+    @Setup(Level.Trial)
+    public void createDeposits() throws IOException {
+        context = H2TestContext.start(JpaTestConfiguration.class, "jdbc:h2:file:./target/benchmark/deposit-lookup;CACHE_SIZE=262144");
+        depositRepository = context.getBean(DepositRepository.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        // deposit n belongs to account (n * 7919) mod accounts, so an account's deposits are not adjacent
+        accounts = Math.max(1, rows / DEPOSITS_PER_ACCOUNT);
+        jdbcTemplate.update("INSERT INTO DEPOSIT (DEPOSIT_ID, DEPOSIT_TYPE, TRANSACTION_DATE, DEPOSIT_STATUS, DEPOSIT_MEDIUM,"
+                + " DEPOSIT_AMOUNT, DEPOSIT_DESCRIPTION, ACCOUNT_ID, DEPOSIT_VERSION)"
+                + " SELECT X, 'DEPOSIT', DATE '2024-01-01' + MOD(X, 365), 'COMPLETED', 'BALANCE', MOD(X, 100000), 'benchmark',"
+                + " MOD(X * 7919, " + accounts + ") + 1, 0 FROM SYSTEM_RANGE(1, " + rows + ")");
+
+        if (indexed) {
+            for (String statement : depositIndexStatements()) {
+                jdbcTemplate.execute(statement);
+            }
+        }
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        context.close();
+    }
+
+
+    @Benchmark
+    public List<Deposit> firstPageOfAnAccount() {
+        long accountId = ThreadLocalRandom.current().nextInt(accounts) + 1;
+        return depositRepository.findPageByAccountId(accountId, 0L, null, null, null, null, null, null, null, PAGE_LIMIT + 1);
+    }
+
+
+    // the CREATE INDEX ... ON deposit statements of every migration, in version order
+    private static List<String> depositIndexStatements() throws IOException {
+        Resource[] migrations = new PathMatchingResourcePatternResolver().getResources("classpath:db/migration/V*__*.sql");
+        return Arrays.stream(migrations)
+                .sorted(Comparator.comparingInt(DepositLookupBenchmark::version))
+                .flatMap(migration -> statements(migration).stream())
+                .filter(statement -> statement.toLowerCase().matches("create index \\w+ on deposit .*"))
+                .toList();
+    }
+
+    private static List<String> statements(Resource migration) {
+        try {
+            String sql = migration.getContentAsString(StandardCharsets.UTF_8).replaceAll("(?m)^--.*$", "");
+            return Arrays.stream(sql.split(";")).map(String::trim).map(s -> s.replaceAll("\\s+", " ")).toList();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read " + migration, e);
+        }
+    }
+
+    private static int version(Resource migration) {
+        String name = migration.getFilename();
+        return Integer.parseInt(name.substring(1, name.indexOf("__")));
+    }
+}
@@ -0,0 +1,121 @@
+package service;
+
+import domain.Account;
+import domain.Money;
+import domain.enums.AccountType;
+import domain.enums.Medium;
+import domain.enums.TransactionType;
+import jakarta.validation.Validator;
+import org.h2.tools.Server;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import repository.AccountRepository;
+import testconfig.H2TestContext;
+import testconfig.ServiceTestConfiguration;
+import util.DepositCreationRequest;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Deposits created per second for one payroll run of 1000 deposits, once through the per-request path
+// (the controller's validation and DepositService.startCreateDepositProcess for each deposit) and once
+// through DepositBatchService.createDeposits, the service of POST /accounts/{accountId}/deposits/batch.
+// HTTP is left out, which favours the per-request path. The schema is created from the entities on an in-memory
+// H2 database (see h2-test.properties) reached over a loopback TCP connection.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 4)
+@Measurement(iterations = 5, time = 2)
+public class BulkDepositBenchmark {
+
+    private static final int DEPOSITS_PER_RUN = 1000;
+
+    private Server server;
+
+    private ConfigurableApplicationContext context;
+
+    private DepositService depositService;
+
+    private DepositBatchService depositBatchService;
+
+    private Validator validator;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private Long accountId;
+
+    private final List<DepositCreationRequest> depositCreationRequests = new ArrayList<>(DEPOSITS_PER_RUN);
+
+
+    @Setup(Level.Trial)
+    public void start() throws SQLException {
+        server = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+        context = H2TestContext.start(ServiceTestConfiguration.class, "jdbc:h2:tcp://localhost:" + server.getPort() + "/mem:bulk-deposit");
+        depositService = context.getBean(DepositService.class);
+        depositBatchService = context.getBean(DepositBatchService.class);
+        validator = context.getBean(Validator.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        Account account = new Account();
+        account.setType(AccountType.CHECKING);
+        account.setNickname("Payroll");
+        account.setRewards(0);
+        account.setBalance(Money.ZERO);
+        account.setCustomerId(1L);
+        accountId = context.getBean(AccountRepository.class).save(account).getId();
+
+        for (int i = 0; i < DEPOSITS_PER_RUN; i++) {
+            DepositCreationRequest depositCreationRequest = new DepositCreationRequest();
+            depositCreationRequest.setDepositType(TransactionType.DEPOSIT);
+            depositCreationRequest.setDepositMedium(Medium.BALANCE);
+            depositCreationRequest.setDepositAmount(Money.ofMinorUnits(250_000 + i));
+            depositCreationRequest.setDepositDescription("Payroll");
+            depositCreationRequests.add(depositCreationRequest);
+        }
+    }
+
+    // keeps the table the same size for every iteration
+    @Setup(Level.Iteration)
+    public void emptyDeposits() {
+        jdbcTemplate.execute("TRUNCATE TABLE DEPOSIT");
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        context.close();
+        server.stop();
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation(DEPOSITS_PER_RUN)
+    public void perRequest() {
+        for (DepositCreationRequest depositCreationRequest : depositCreationRequests) {
+            validator.validate(depositCreationRequest);
+            depositService.startCreateDepositProcess(accountId, depositCreationRequest);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DEPOSITS_PER_RUN)
+    public Object batch() {
+        return depositBatchService.createDeposits(accountId, depositCreationRequests);
+    }
+}
@@ -0,0 +1,117 @@
+package service;
+
+import domain.Deposit;
+import domain.Money;
+import domain.enums.TransactionType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+// The balance update loop of one settlement chunk: 1000 pending deposits over 100 accounts, a third of them P2P,
+// checked against the available balances and summed into one delta per account. "minorUnits" is the shipped
+// DepositSettlementService.sumDeltas; "doubles" is the loop as it was before balances became cents, with
+// Double balances and deltas in maps, kept here because it no longer exists anywhere else.
+// Run with -prof gc for the allocations per chunk.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DepositSettlementBenchmark {
+
+    private static final int DEPOSITS = 1000;
+
+    private static final int ACCOUNTS = 100;
+
+    private final List<Deposit> deposits = new ArrayList<>(DEPOSITS);
+
+    // the old entities held their amounts as Double, boxed once up front
+    private final Double[] amounts = new Double[DEPOSITS];
+
+    private final Map<Long, Double> balances = new HashMap<>();
+
+    private final long[] accountIdsInOrder = new long[ACCOUNTS];
+
+    private final long[] balancesInCents = new long[ACCOUNTS];
+
+
+    @Setup(Level.Trial)
+    public void createDeposits() {
+        Random random = new Random(42);
+        for (int i = 0; i < DEPOSITS; i++) {
+            Deposit deposit = new Deposit();
+            deposit.setDepositId(1_000_000L + i);
+            deposit.setType(i % 3 == 0 ? TransactionType.P2P : TransactionType.DEPOSIT);
+            deposit.setAccountId(random.nextLong(ACCOUNTS) + 1);
+            deposit.setPayee_id(random.nextLong(ACCOUNTS) + 1);
+            deposit.setAmount(Money.ofMinorUnits(random.nextLong(100_000) + 1));
+            deposits.add(deposit);
+            amounts[i] = deposit.getAmount().minorUnits() / 100.0;
+        }
+        for (int i = 0; i < ACCOUNTS; i++) {
+            long balance = random.nextLong(1_000_000);
+            accountIdsInOrder[i] = i + 1;
+            balancesInCents[i] = balance;
+            balances.put(i + 1L, balance / 100.0);
+        }
+    }
+
+
+    @Benchmark
+    public Map<Long, Double> doubles(Blackhole blackhole) {
+        Map<Long, Double> deltas = new TreeMap<>();
+        List<Long> settledDepositIds = new ArrayList<>();
+
+        for (int i = 0; i < DEPOSITS; i++) {
+            Deposit deposit = deposits.get(i);
+            Long accountId = deposit.getAccountId();
+            Double amount = amounts[i];
+
+            if (!balances.containsKey(accountId)) {
+                continue;
+            }
+
+            if (deposit.getType() == TransactionType.P2P) {
+                Long payeeId = deposit.getPayee_id();
+                double available = balances.get(accountId) + deltas.getOrDefault(accountId, 0.0);
+                if (!balances.containsKey(payeeId) || available < amount) {
+                    continue;
+                }
+                deltas.merge(accountId, -amount, Double::sum);
+                deltas.merge(payeeId, amount, Double::sum);
+            } else {
+                deltas.merge(accountId, amount, Double::sum);
+            }
+            settledDepositIds.add(deposit.getDepositId());
+        }
+        blackhole.consume(settledDepositIds);
+        return deltas;
+    }
+
+    @Benchmark
+    public long[] minorUnits(Blackhole blackhole) {
+        long[] deltas = new long[accountIdsInOrder.length];
+        boolean[] updated = new boolean[accountIdsInOrder.length];
+        blackhole.consume(DepositSettlementService.sumDeltas(deposits, accountIdsInOrder, balancesInCents, deltas, updated));
+        blackhole.consume(updated);
+        return deltas;
+    }
+}
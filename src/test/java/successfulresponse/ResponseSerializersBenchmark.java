@@ -0,0 +1,207 @@
+package successfulresponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import config.JacksonConfig;
+import domain.Account;
+import domain.Address;
+import domain.Bill;
+import domain.Customer;
+import domain.Deposit;
+import domain.Money;
+import domain.Withdrawal;
+import domain.enums.AccountType;
+import domain.enums.BillStatus;
+import domain.enums.DepositStatus;
+import domain.enums.Medium;
+import domain.enums.TransactionType;
+import domain.enums.WithdrawalStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// The body of each single-entity GET (GET /accounts/{id}, /customers/{id}, /bills/{id}, /deposits/{id} and
+// /withdrawals/{id}), from building the envelope to the last byte written, once as the services built it before
+// (a one element ArrayList in an ApiResponse, a concatenated message, Jackson's bean serializers) and once as
+// they do now (SingleApiResponse, a constant message, the ResponseSerializers module). Both mappers are built
+// like Spring Boot's; run with -prof gc for the bytes allocated per response.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ResponseSerializersBenchmark {
+
+    @Param({"account", "customer", "bill", "deposit", "withdrawal"})
+    private String controller;
+
+    private ObjectMapper beanMapper;
+
+    private ObjectMapper responseSerializersMapper;
+
+    // discards the body, and unlike OutputStream.nullOutputStream() can still be written after Jackson closes it
+    private final OutputStream body = new OutputStream() {
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    private Account account;
+
+    private Customer customer;
+
+    private Bill bill;
+
+    private Deposit deposit;
+
+    private Withdrawal withdrawal;
+
+
+    @Setup(Level.Trial)
+    public void createEntities() {
+        beanMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+        responseSerializersMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).modulesToInstall(new JacksonConfig().responseSerializers()).build();
+
+        account = new Account();
+        account.setId(1L);
+        account.setType(AccountType.CHECKING);
+        account.setNickname("Everyday checking");
+        account.setRewards(120);
+        account.setBalance(Money.of("2500.75"));
+        account.setCustomerId(1L);
+        account.setVersion(3L);
+
+        Address address = new Address();
+        address.setId(1L);
+        address.setStreet_number("12");
+        address.setStreet_name("Main Street");
+        address.setCity("Wilmington");
+        address.setState("DE");
+        address.setZip("19801");
+        Set<Address> addresses = new LinkedHashSet<>();
+        addresses.add(address);
+
+        customer = new Customer();
+        customer.setId(1L);
+        customer.setFirstName("Ada");
+        customer.setLastName("Lovelace");
+        customer.setAddress(addresses);
+        customer.setVersion(0L);
+
+        bill = new Bill();
+        bill.setId(1L);
+        bill.setStatus(BillStatus.RECURRING);
+        bill.setPayee("Electric company");
+        bill.setNickname("Power");
+        bill.setCreationDate(LocalDate.of(2024, 1, 15));
+        bill.setPaymentDate("Awaiting payment.");
+        bill.setRecurringDate(15);
+        bill.setUpcomingPaymentDate(LocalDate.of(2024, 2, 15));
+        bill.setPaymentAmount(Money.of("89.99"));
+        bill.setAccountId(1L);
+        bill.setVersion(0L);
+
+        deposit = new Deposit();
+        deposit.setDepositId(1L);
+        deposit.setType(TransactionType.DEPOSIT);
+        deposit.setTransactionDate(LocalDate.of(2024, 1, 15));
+        deposit.setStatus(DepositStatus.COMPLETED);
+        deposit.setMedium(Medium.BALANCE);
+        deposit.setAmount(Money.of("1200.00"));
+        deposit.setDescription("Payroll");
+        deposit.setAccountId(1L);
+        deposit.setVersion(1L);
+
+        withdrawal = new Withdrawal();
+        withdrawal.setId(1L);
+        withdrawal.setType(TransactionType.WITHDRAWAL);
+        withdrawal.setTransaction_Date(LocalDate.of(2024, 1, 15));
+        withdrawal.setStatus(WithdrawalStatus.EXECUTED);
+        withdrawal.setPayer_id(1L);
+        withdrawal.setMedium(Medium.BALANCE);
+        withdrawal.setAmount(Money.of("40.00"));
+        withdrawal.setDescription("ATM");
+    }
+
+
+    @Benchmark
+    public void apiResponseWithBeanSerializers() throws IOException {
+        beanMapper.writeValue(body, switch (controller) {
+            case "account" -> {
+                ApiResponse<Account> response = new ApiResponse<>();
+                response.setCode(200);
+                response.setMessage("Successfully fetched account");
+                List<Account> accounts = new ArrayList<>();
+                accounts.add(account);
+                response.setData(accounts);
+                yield response;
+            }
+            case "customer" -> {
+                ApiResponse<Customer> response = new ApiResponse<>();
+                response.setCode(200);
+                response.setMessage("Success");
+                List<Customer> customers = new ArrayList<>();
+                customers.add(customer);
+                response.setData(customers);
+                yield response;
+            }
+            case "bill" -> {
+                List<Bill> bills = new ArrayList<>();
+                bills.add(bill);
+                yield new ApiResponse<>(200, "Bill with Id (" + bill.getId() + ") retrieved successfully.", bills);
+            }
+            case "deposit" -> {
+                List<Deposit> deposits = new ArrayList<>();
+                deposits.add(deposit);
+                yield new ApiResponse<>(200, deposits);
+            }
+            default -> {
+                ApiResponse<Withdrawal> response = new ApiResponse<>();
+                response.setCode(200);
+                response.setMessage("Withdrawal with id " + withdrawal.getId() + " retrieved");
+                List<Withdrawal> withdrawals = new ArrayList<>();
+                withdrawals.add(withdrawal);
+                response.setData(withdrawals);
+                yield response;
+            }
+        });
+    }
+
+    @Benchmark
+    public void singleApiResponseWithResponseSerializers() throws IOException {
+        responseSerializersMapper.writeValue(body, switch (controller) {
+            case "account" -> new SingleApiResponse<>(200, ResponseMessages.ACCOUNT_RETRIEVED, account);
+            case "customer" -> new SingleApiResponse<>(200, ResponseMessages.CUSTOMER_RETRIEVED, customer);
+            case "bill" -> new SingleApiResponse<>(200, ResponseMessages.BILL_RETRIEVED, bill);
+            case "deposit" -> new SingleApiResponse<>(200, ResponseMessages.DEPOSIT_RETRIEVED, deposit);
+            default -> new SingleApiResponse<>(200, ResponseMessages.WITHDRAWAL_RETRIEVED, withdrawal);
+        });
+    }
+}
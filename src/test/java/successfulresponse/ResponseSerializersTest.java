@@ -0,0 +1,152 @@
+package successfulresponse;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import config.JacksonConfig;
+import domain.Account;
+import domain.Address;
+import domain.Bill;
+import domain.Customer;
+import domain.Deposit;
+import domain.Money;
+import domain.Withdrawal;
+import domain.enums.AccountType;
+import domain.enums.BillStatus;
+import domain.enums.DepositStatus;
+import domain.enums.Medium;
+import domain.enums.TransactionType;
+import domain.enums.WithdrawalStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// The hand written serializers must write exactly what Jackson's bean serializers wrote before them
+class ResponseSerializersTest {
+
+    private static final List<Money> AMOUNTS = List.of(Money.ZERO, Money.ofMinorUnits(5), Money.ofMinorUnits(-5), Money.ofMinorUnits(-50),
+            Money.of("2500.75"), Money.of("-1200.00"), Money.ofMinorUnits(Long.MAX_VALUE), Money.ofMinorUnits(Long.MIN_VALUE));
+
+    private static final List<LocalDate> DATES = List.of(LocalDate.of(2024, 1, 5), LocalDate.of(1999, 12, 31), LocalDate.of(999, 2, 3),
+            LocalDate.of(0, 1, 1), LocalDate.of(9999, 12, 31), LocalDate.of(10000, 1, 1), LocalDate.of(-1, 6, 15));
+
+    private final ObjectMapper beanMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+
+    private final ObjectMapper responseSerializersMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).modulesToInstall(new JacksonConfig().responseSerializers()).build();
+
+
+    @Test
+    void accountsAreWrittenLikeTheBeanSerializer() throws JsonProcessingException {
+        for (Money amount : AMOUNTS) {
+            Account account = new Account();
+            account.setId(1L);
+            account.setType(AccountType.CHECKING);
+            account.setNickname("Everyday \"checking\"");
+            account.setRewards(120);
+            account.setBalance(amount);
+            account.setCustomerId(1L);
+            account.setVersion(3L);
+            assertSameJson(account);
+        }
+        assertSameJson(new Account());
+    }
+
+    @Test
+    void depositsAreWrittenLikeTheBeanSerializer() throws JsonProcessingException {
+        for (int i = 0; i < AMOUNTS.size(); i++) {
+            Deposit deposit = new Deposit();
+            deposit.setDepositId(1L);
+            deposit.setType(TransactionType.P2P);
+            deposit.setTransactionDate(DATES.get(i % DATES.size()));
+            deposit.setStatus(DepositStatus.COMPLETED);
+            deposit.setPayee_id(2L);
+            deposit.setMedium(Medium.BALANCE);
+            deposit.setAmount(AMOUNTS.get(i));
+            deposit.setDescription("Payroll");
+            deposit.setAccountId(1L);
+            deposit.setVersion(1L);
+            assertSameJson(deposit);
+        }
+        assertSameJson(new Deposit());
+    }
+
+    @Test
+    void billsAreWrittenLikeTheBeanSerializer() throws JsonProcessingException {
+        for (LocalDate date : DATES) {
+            Bill bill = new Bill();
+            bill.setId(1L);
+            bill.setStatus(BillStatus.RECURRING);
+            bill.setPayee("Electric company");
+            bill.setNickname("Power");
+            bill.setCreationDate(date);
+            bill.setPaymentDate("Awaiting payment.");
+            bill.setRecurringDate(15);
+            bill.setUpcomingPaymentDate(date.plusMonths(1));
+            bill.setPaymentAmount(Money.of("89.99"));
+            bill.setAccountId(1L);
+            bill.setVersion(0L);
+            assertSameJson(bill);
+        }
+        assertSameJson(new Bill());
+    }
+
+    @Test
+    void withdrawalsAreWrittenLikeTheBeanSerializer() throws JsonProcessingException {
+        Withdrawal withdrawal = new Withdrawal();
+        withdrawal.setId(1L);
+        withdrawal.setType(TransactionType.WITHDRAWAL);
+        withdrawal.setTransaction_Date(LocalDate.of(2024, 1, 15));
+        withdrawal.setStatus(WithdrawalStatus.EXECUTED);
+        withdrawal.setPayer_id(1L);
+        withdrawal.setMedium(Medium.BALANCE);
+        withdrawal.setAmount(Money.of("40.00"));
+        withdrawal.setDescription("ATM");
+        assertSameJson(withdrawal);
+        assertSameJson(new Withdrawal());
+    }
+
+    @Test
+    void customersAreWrittenLikeTheBeanSerializer() throws JsonProcessingException {
+        Address address = new Address();
+        address.setId(1L);
+        address.setStreet_number("12");
+        address.setStreet_name("Main Street");
+        address.setCity("Wilmington");
+        address.setState("DE");
+        address.setZip("19801");
+        Set<Address> addresses = new LinkedHashSet<>();
+        addresses.add(address);
+
+        Customer customer = new Customer();
+        customer.setId(1L);
+        customer.setFirstName("Ada");
+        customer.setLastName("Lovelace");
+        customer.setAddress(addresses);
+        customer.setVersion(0L);
+        assertSameJson(customer);
+        assertSameJson(new Customer());
+    }
+
+    @Test
+    void singleApiResponseIsWrittenLikeAnApiResponseOfOneItem() throws JsonProcessingException {
+        Deposit deposit = new Deposit();
+        deposit.setDepositId(1L);
+        deposit.setAmount(Money.of("10.00"));
+
+        assertEquals(beanMapper.writeValueAsString(new ApiResponse<>(200, ResponseMessages.DEPOSIT_RETRIEVED, List.of(deposit))),
+                responseSerializersMapper.writeValueAsString(new SingleApiResponse<>(200, ResponseMessages.DEPOSIT_RETRIEVED, deposit)));
+    }
+
+
+    private void assertSameJson(Object entity) throws JsonProcessingException {
+        assertEquals(beanMapper.writeValueAsString(entity), responseSerializersMapper.writeValueAsString(entity));
+    }
+}
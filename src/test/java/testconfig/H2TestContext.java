@@ -0,0 +1,25 @@
+package testconfig;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// Starts a non-web context on an H2 database with the settings of h2-test.properties, which override
+// application.properties; the arguments are command line properties and override both
+public final class H2TestContext {
+
+    public static final String PROPERTIES = "h2-test.properties";
+
+    private H2TestContext() {
+    }
+
+    public static ConfigurableApplicationContext start(Class<?> configuration, String datasourceUrl, String... args) {
+
+        String[] allArgs = new String[args.length + 2];
+        allArgs[0] = "--spring.config.additional-location=classpath:" + PROPERTIES;
+        allArgs[1] = "--spring.datasource.url=" + datasourceUrl;
+        System.arraycopy(args, 0, allArgs, 2, args.length);
+
+        return new SpringApplicationBuilder(configuration).web(WebApplicationType.NONE).run(allArgs);
+    }
+}
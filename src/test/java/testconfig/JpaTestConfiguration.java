@@ -0,0 +1,20 @@
+package testconfig;
+
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+// The application has no @SpringBootApplication class, so tests and benchmarks name its entities and
+// repositories here: just the JPA layer, for the repository tests and benchmarks
+@SpringBootConfiguration
+@ImportAutoConfiguration({DataSourceAutoConfiguration.class, JdbcTemplateAutoConfiguration.class, HibernateJpaAutoConfiguration.class,
+        TransactionAutoConfiguration.class})
+@EntityScan("domain")
+@EnableJpaRepositories("repository")
+public class JpaTestConfiguration {
+}
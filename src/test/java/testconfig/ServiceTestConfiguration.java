@@ -0,0 +1,18 @@
+package testconfig;
+
+import config.SchedulingConfig;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+
+// The JPA layer plus the application's configuration and services, without the web layer;
+// SchedulingConfig is left out so settlement and bill payments never run against test data
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@ComponentScan(basePackages = {"config", "service"},
+        excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = SchedulingConfig.class))
+@Import(JpaTestConfiguration.class)
+public class ServiceTestConfiguration {
+}
@@ -0,0 +1,89 @@
+package util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Upcoming payment dates of 1000 recurring bills, recurring days 1-31 and dates spread over 2024 in date order
+// like a payment run, once with the recursive calculation BillService used before RecurringDateCalendar and
+// once with the calendar, one bill at a time (bill creation) and as one bulk call (BillPaymentScheduler).
+// Run with -prof gc for the allocations per run; the recursive version pays for a DateTimeException per
+// day it has to step back in a short month.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RecurringDateCalendarBenchmark {
+
+    private static final int BILLS = 1000;
+
+    private final LocalDate[] after = new LocalDate[BILLS];
+
+    private final int[] recurringDays = new int[BILLS];
+
+
+    @Setup(Level.Trial)
+    public void createBills() {
+        Random random = new Random(42);
+        for (int i = 0; i < BILLS; i++) {
+            after[i] = LocalDate.of(2024, 1, 1).plusDays(random.nextInt(366));
+        }
+        Arrays.sort(after);
+        for (int i = 0; i < BILLS; i++) {
+            recurringDays[i] = random.nextInt(RecurringDateCalendar.MAX_RECURRING_DAY) + 1;
+        }
+    }
+
+    // BillService.calculateUpcomingPaymentDate as it was, except that it returns the recursive result:
+    // the original dropped it and answered 0000-01-01, which would make this benchmark cheaper, not fairer
+    private static LocalDate recursiveNextDueDate(Integer recurringDate, LocalDate creationDate) {
+
+        LocalDate upcomingPaymentDate;
+
+        try {
+            upcomingPaymentDate = YearMonth.from(creationDate).plusMonths(1).atDay(recurringDate);
+        } catch (DateTimeException e) {
+            upcomingPaymentDate = recursiveNextDueDate(recurringDate - 1, creationDate);
+        }
+
+        return upcomingPaymentDate;
+    }
+
+
+    @Benchmark
+    public void recursive(Blackhole blackhole) {
+        for (int i = 0; i < BILLS; i++) {
+            blackhole.consume(recursiveNextDueDate(recurringDays[i], after[i]));
+        }
+    }
+
+    @Benchmark
+    public void calendar(Blackhole blackhole) {
+        for (int i = 0; i < BILLS; i++) {
+            blackhole.consume(RecurringDateCalendar.nextDueDate(after[i], recurringDays[i]));
+        }
+    }
+
+    @Benchmark
+    public LocalDate[] calendarBulk() {
+        return RecurringDateCalendar.nextDueDates(after, recurringDays);
+    }
+}
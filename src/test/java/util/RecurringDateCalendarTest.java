@@ -0,0 +1,88 @@
+package util;
+
+import exceptions.InvalidInputException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RecurringDateCalendarTest {
+
+    // covers non-leap years, ordinary leap years and the 2000 century leap year
+    private static final LocalDate FIRST = LocalDate.of(1999, 1, 1);
+    private static final LocalDate LAST = LocalDate.of(2032, 12, 31);
+
+
+    // what the payment runner computed before the table: the recurring day of the next month, clamped to its length
+    private static LocalDate yearMonthNextDueDate(LocalDate after, int recurringDay) {
+        YearMonth nextMonth = YearMonth.from(after).plusMonths(1);
+        return nextMonth.atDay(Math.min(recurringDay, nextMonth.lengthOfMonth()));
+    }
+
+    @Test
+    void nextDueDateMatchesYearMonthForEveryDateAndRecurringDay() {
+        for (LocalDate date = FIRST; !date.isAfter(LAST); date = date.plusDays(1)) {
+            for (int recurringDay = 1; recurringDay <= 31; recurringDay++) {
+                assertEquals(yearMonthNextDueDate(date, recurringDay), RecurringDateCalendar.nextDueDate(date, recurringDay),
+                        "after " + date + " on day " + recurringDay);
+            }
+        }
+    }
+
+    @Test
+    void nextDueDatesMatchesYearMonthForEveryDateAndRecurringDay() {
+        List<LocalDate> dates = new ArrayList<>();
+        List<Integer> days = new ArrayList<>();
+        for (LocalDate date = FIRST; !date.isAfter(LAST); date = date.plusDays(1)) {
+            for (int recurringDay = 1; recurringDay <= 31; recurringDay++) {
+                dates.add(date);
+                days.add(recurringDay);
+            }
+        }
+
+        LocalDate[] after = dates.toArray(new LocalDate[0]);
+        int[] recurringDays = days.stream().mapToInt(Integer::intValue).toArray();
+        LocalDate[] dueDates = RecurringDateCalendar.nextDueDates(after, recurringDays);
+
+        for (int i = 0; i < after.length; i++) {
+            assertEquals(yearMonthNextDueDate(after[i], recurringDays[i]), dueDates[i], "after " + after[i] + " on day " + recurringDays[i]);
+        }
+    }
+
+    @Test
+    void shortMonthsClampToTheirLastDay() {
+        assertEquals(LocalDate.of(2024, 2, 29), RecurringDateCalendar.nextDueDate(LocalDate.of(2024, 1, 31), 31));
+        assertEquals(LocalDate.of(2023, 2, 28), RecurringDateCalendar.nextDueDate(LocalDate.of(2023, 1, 29), 29));
+        assertEquals(LocalDate.of(2000, 2, 29), RecurringDateCalendar.nextDueDate(LocalDate.of(2000, 1, 30), 30));
+        assertEquals(LocalDate.of(2100, 2, 28), RecurringDateCalendar.nextDueDate(LocalDate.of(2100, 1, 31), 31));
+        assertEquals(LocalDate.of(2024, 3, 31), RecurringDateCalendar.nextDueDate(LocalDate.of(2024, 2, 29), 31));
+        assertEquals(LocalDate.of(2024, 4, 30), RecurringDateCalendar.nextDueDate(LocalDate.of(2024, 3, 31), 31));
+    }
+
+    @Test
+    void dueDateOnOrAfterIsTheFirstDueDateNotBeforeTheDate() {
+        for (LocalDate date = FIRST; !date.isAfter(LAST); date = date.plusDays(1)) {
+            for (int recurringDay = 1; recurringDay <= 31; recurringDay++) {
+                YearMonth month = YearMonth.from(date);
+                LocalDate expected = month.atDay(Math.min(recurringDay, month.lengthOfMonth()));
+                if (expected.isBefore(date)) {
+                    expected = yearMonthNextDueDate(date, recurringDay);
+                }
+                assertEquals(expected, RecurringDateCalendar.dueDateOnOrAfter(date, recurringDay), "from " + date + " on day " + recurringDay);
+            }
+        }
+    }
+
+    @Test
+    void recurringDaysOutsideOneToThirtyOneAreRejected() {
+        assertThrows(InvalidInputException.class, () -> RecurringDateCalendar.nextDueDate(LocalDate.of(2024, 1, 1), 0));
+        assertThrows(InvalidInputException.class, () -> RecurringDateCalendar.nextDueDate(LocalDate.of(2024, 1, 1), 32));
+        assertThrows(InvalidInputException.class, () -> RecurringDateCalendar.nextDueDates(new LocalDate[]{LocalDate.of(2024, 1, 1)}, new int[]{0}));
+        assertThrows(InvalidInputException.class, () -> RecurringDateCalendar.nextDueDates(new LocalDate[2], new int[1]));
+    }
+}